@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLAnimationQueue;
+import com.blackrook.ogl.gui.OGLGUI;
+import com.blackrook.ogl.gui.OGLGUIAnimation;
+import com.blackrook.ogl.gui.object.OGLGUIPanel;
+
+/**
+ * Benchmarks updating thousands of active animations ({@link OGLAnimationQueue#update(float)}) 
+ * through {@link OGLGUI#updateAnimations(float)}.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimationBenchmark
+{
+	/** Long enough that no animation finishes during a run. */
+	private static final float DURATION = 1e9f;
+	
+	@Param({"1000", "5000", "20000"})
+	public int animations;
+	
+	private OGLGUI gui;
+	
+	@Setup
+	public void setup()
+	{
+		gui = new OGLGUI(null);
+		gui.setUpdateAnimationsDuringDisplay(false);
+		for (int i = 0; i < animations; i++)
+		{
+			OGLGUIPanel panel = new OGLGUIPanel(0, 0, 8, 8);
+			gui.addObject(panel);
+			panel.animate(DURATION, 
+				OGLGUIAnimation.position((float)(i % 1000), (float)(i / 1000)), 
+				OGLGUIAnimation.opacity(0.5f)
+			);
+		}
+	}
+	
+	@Benchmark
+	public void update()
+	{
+		gui.updateAnimations(16f);
+	}
+	
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import com.blackrook.ogl.gui.OGLGUI;
+import com.blackrook.ogl.gui.OGLGUIObject;
+import com.blackrook.ogl.gui.object.OGLGUIPanel;
+
+/**
+ * Builds GUIs for benchmarks.
+ * Nothing is rendered by the benchmarks, so GUIs are created without a resource loader.
+ * @author Matthew Tropiano
+ */
+final class BenchmarkScenes
+{
+	/** Canvas width for benchmark GUIs. */
+	static final int CANVAS_WIDTH = 1024;
+	/** Canvas height for benchmark GUIs. */
+	static final int CANVAS_HEIGHT = 1024;
+	
+	private BenchmarkScenes() {}
+	
+	/**
+	 * Creates a GUI with a root panel holding a square grid of panels, each 
+	 * holding one child panel, named "panel", "row&lt;y&gt;", "col&lt;x&gt;" and "item&lt;n&gt;".
+	 * @param objects the approximate amount of grid panels.
+	 * @return the new GUI.
+	 */
+	static OGLGUI createGrid(int objects)
+	{
+		OGLGUI gui = new OGLGUI(null);
+		int side = (int)Math.ceil(Math.sqrt(objects));
+		float cell = (float)CANVAS_WIDTH / side;
+		
+		OGLGUIPanel root = new OGLGUIPanel(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
+		root.addName("root");
+		gui.beginUpdate();
+		gui.addObject(root);
+		int n = 0;
+		for (int y = 0; y < side; y++)
+			for (int x = 0; x < side; x++)
+			{
+				OGLGUIPanel panel = new OGLGUIPanel(x * cell, y * cell, cell, cell);
+				panel.addName("panel", "row" + y, "col" + x, "item" + (n++));
+				OGLGUIObject inner = new OGLGUIPanel(cell / 4, cell / 4, cell / 2, cell / 2);
+				inner.addName("inner");
+				panel.addChild(inner);
+				root.addChild(panel);
+			}
+		gui.endUpdate();
+		return gui;
+	}
+	
+}
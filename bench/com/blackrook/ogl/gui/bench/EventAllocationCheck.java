@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.blackrook.ogl.gui.OGLGUI;
+import com.blackrook.ogl.gui.OGLGUIAction;
+import com.blackrook.ogl.gui.OGLGUIEvent;
+import com.blackrook.ogl.gui.OGLGUIHeadlessDriver;
+import com.blackrook.ogl.gui.OGLGUIObject;
+
+/**
+ * Checks that moving the mouse over a scene allocates nothing once it has warmed up,
+ * with event pooling enabled. Every grid panel has mouse move, over, and leave actions,
+ * so each move hit-tests the scene and fires pooled events.
+ * The check is run with event propagation off, then on.
+ * <p>Allocation is measured on the current thread with
+ * <code>com.sun.management.ThreadMXBean.getThreadAllocatedBytes</code>, minus what
+ * measuring itself allocates. Exits with status 1 if any moves allocated.
+ * Run by the "alloccheck" Ant target.
+ * @author Matthew Tropiano
+ */
+public final class EventAllocationCheck
+{
+	/** Amount of grid panels. */
+	private static final int OBJECTS = 10000;
+	/** Amount of mouse moves made before measuring. */
+	private static final int WARMUP_MOVES = 200000;
+	/** Amount of mouse moves measured. */
+	private static final int MEASURED_MOVES = 100000;
+
+	/** Amount of events seen by the actions, so that they are not optimized away. */
+	private static long eventCount = 0L;
+
+	private EventAllocationCheck() {}
+
+	public static void main(String[] args)
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported())
+		{
+			System.err.println("Thread allocation measuring is not supported by this JVM.");
+			System.exit(2);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		boolean failed = false;
+		failed |= check(threads, false);
+		failed |= check(threads, true);
+		System.out.println("Events: " + eventCount);
+		System.exit(failed ? 1 : 0);
+	}
+
+	// Runs the check with propagation on or off. Returns true if the check failed.
+	private static boolean check(com.sun.management.ThreadMXBean threads, boolean propagation)
+	{
+		OGLGUI gui = BenchmarkScenes.createGrid(OBJECTS);
+		gui.setEventPoolingEnabled(true);
+		gui.setEventPropagationEnabled(propagation);
+
+		OGLGUIAction action = new OGLGUIAction()
+		{
+			@Override
+			public void call(OGLGUIEvent event)
+			{
+				eventCount++;
+			}
+		};
+		for (OGLGUIObject object : gui.getByName("panel"))
+			object.bindAction(action, OGLGUIObject.EVENT_MOUSE_MOVE, OGLGUIObject.EVENT_MOUSE_OVER, OGLGUIObject.EVENT_MOUSE_LEAVE);
+
+		OGLGUIHeadlessDriver driver = new OGLGUIHeadlessDriver(gui, BenchmarkScenes.CANVAS_WIDTH, BenchmarkScenes.CANVAS_HEIGHT);
+		driver.step();
+
+		Random random = new Random(0L);
+		int[] positions = new int[4096];
+		for (int i = 0; i < positions.length; i++)
+			positions[i] = random.nextInt(BenchmarkScenes.CANVAS_WIDTH);
+
+		moves(driver, positions, WARMUP_MOVES);
+
+		long threadId = Thread.currentThread().getId();
+		long start = threads.getThreadAllocatedBytes(threadId);
+		long overhead = threads.getThreadAllocatedBytes(threadId) - start;
+		start = threads.getThreadAllocatedBytes(threadId);
+		moves(driver, positions, MEASURED_MOVES);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+
+		System.out.println("Propagation " + (propagation ? "on" : "off") + ": "
+			+ Math.max(allocated, 0L) + " bytes allocated in " + MEASURED_MOVES + " mouse moves.");
+		return allocated > 0L;
+	}
+
+	// Moves the mouse through a list of positions.
+	private static void moves(OGLGUIHeadlessDriver driver, int[] positions, int count)
+	{
+		int next = 0;
+		for (int i = 0; i < count; i++)
+		{
+			driver.mouseMoveTo(positions[next], positions[next + 1]);
+			next = (next + 2) % positions.length;
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLGUIFont;
+
+/**
+ * Benchmarks {@link OGLGUIFont#readBMFont(java.io.InputStream, float, com.blackrook.ogl.util.OGLSkin)}
+ * on generated BMFont XML.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FontParseBenchmark
+{
+	@Param({"96", "1024", "8192"})
+	public int chars;
+	
+	private byte[] data;
+	
+	@Setup
+	public void setup()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\"?>\n<font>\n");
+		sb.append("<info face=\"Bench\" size=\"32\"/>\n");
+		sb.append("<common lineHeight=\"32\" base=\"26\" scaleW=\"1024\" scaleH=\"1024\" pages=\"1\"/>\n");
+		sb.append("<chars count=\"").append(chars).append("\">\n");
+		for (int i = 0; i < chars; i++)
+		{
+			int c = 32 + i;
+			sb.append("<char id=\"").append(c)
+				.append("\" x=\"").append((i % 32) * 32)
+				.append("\" y=\"").append((i / 32) % 32 * 32)
+				.append("\" width=\"20\" height=\"28\" xoffset=\"1\" yoffset=\"2\" xadvance=\"22\" page=\"0\" chnl=\"15\"/>\n");
+		}
+		sb.append("</chars>\n</font>\n");
+		data = sb.toString().getBytes(Charset.forName("UTF-8"));
+	}
+	
+	@Benchmark
+	public OGLGUIFont readBMFont() throws IOException
+	{
+		return OGLGUIFont.readBMFont(new ByteArrayInputStream(data), 16f, null);
+	}
+	
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLGUIHeadlessDriver;
+
+/**
+ * Benchmarks finding the object under the mouse cursor (OGLGUI.updateObjectEvents)
+ * as the mouse moves, with and without the hit index.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HitTestBenchmark
+{
+	@Param({"1000", "10000", "100000"})
+	public int objects;
+	
+	@Param({"true", "false"})
+	public boolean hitIndex;
+	
+	private OGLGUIHeadlessDriver driver;
+	private int[] positions;
+	private int next;
+	
+	@Setup
+	public void setup()
+	{
+		driver = new OGLGUIHeadlessDriver(BenchmarkScenes.createGrid(objects), 
+			BenchmarkScenes.CANVAS_WIDTH, BenchmarkScenes.CANVAS_HEIGHT);
+		driver.getGUI().setHitIndexEnabled(hitIndex);
+		driver.step();
+		
+		Random random = new Random(0L);
+		positions = new int[2048];
+		for (int i = 0; i < positions.length; i++)
+			positions[i] = random.nextInt(BenchmarkScenes.CANVAS_WIDTH);
+		next = 0;
+	}
+	
+	@Benchmark
+	public void mouseMove()
+	{
+		int x = positions[next];
+		int y = positions[next + 1];
+		next = (next + 2) % positions.length;
+		driver.mouseMoveTo(x, y);
+	}
+	
+}
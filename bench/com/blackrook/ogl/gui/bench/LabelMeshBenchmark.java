@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLGUIFont;
+import com.blackrook.ogl.gui.object.OGLGUILabel;
+
+/**
+ * Benchmarks {@link OGLGUILabel} text mesh building, by switching between two texts.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LabelMeshBenchmark
+{
+	@Param({"16", "256", "4096"})
+	public int length;
+	
+	@Param({"true", "false"})
+	public boolean wordWrap;
+	
+	private OGLGUILabel label;
+	private String[] texts;
+	private int next;
+	
+	@Setup
+	public void setup()
+	{
+		OGLGUIFont font = OGLGUIFont.makeMonospaceFont("mono", 8f, null, 256);
+		label = new OGLGUILabel(font);
+		label.setBounds(0, 0, 400, 4000);
+		label.setWordWrap(wordWrap);
+		
+		texts = new String[2];
+		for (int t = 0; t < texts.length; t++)
+		{
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < length; i++)
+				sb.append(i % 7 == 6 ? ' ' : (char)('a' + (i + t) % 26));
+			texts[t] = sb.toString();
+		}
+		next = 0;
+	}
+	
+	@Benchmark
+	public void setText()
+	{
+		label.setText(texts[next]);
+		next = 1 - next;
+	}
+	
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLGUIFont;
+import com.blackrook.ogl.gui.object.OGLGUILabel;
+
+/**
+ * Benchmarks {@link OGLGUILabel} line breaking on a 10,000-character word-wrapped label,
+ * both by switching between two texts and by re-wrapping the same text at a new width.
+ * Run with <code>-prof gc</code> to see the allocation rate per rebuild.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LabelWrapBenchmark
+{
+	/** Text length. */
+	private static final int LENGTH = 10000;
+
+	private OGLGUILabel label;
+	private String[] texts;
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		OGLGUIFont font = OGLGUIFont.makeMonospaceFont("mono", 8f, null, 256);
+		label = new OGLGUILabel(font);
+		label.setBounds(0, 0, 400, 12000);
+		label.setWordWrap(true);
+
+		Random random = new Random(0L);
+		texts = new String[2];
+		for (int t = 0; t < texts.length; t++)
+		{
+			StringBuilder sb = new StringBuilder(LENGTH);
+			while (sb.length() < LENGTH)
+			{
+				int word = 1 + random.nextInt(10);
+				for (int i = 0; i < word && sb.length() < LENGTH; i++)
+					sb.append((char)('a' + random.nextInt(26)));
+				if (sb.length() < LENGTH)
+					sb.append(random.nextInt(40) == 0 ? '\n' : ' ');
+			}
+			texts[t] = sb.toString();
+		}
+		label.setText(texts[0]);
+		next = 1;
+	}
+
+	@Benchmark
+	public void setText()
+	{
+		label.setText(texts[next]);
+		next = 1 - next;
+	}
+
+	@Benchmark
+	public void rewrap()
+	{
+		label.setBounds(0, 0, next == 0 ? 400 : 360, 12000);
+		next = 1 - next;
+	}
+
+}
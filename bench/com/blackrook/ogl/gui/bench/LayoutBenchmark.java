@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLGUI;
+import com.blackrook.ogl.gui.OGLGUILayout;
+import com.blackrook.ogl.gui.layout.FlowLayout;
+import com.blackrook.ogl.gui.layout.GridLayout;
+import com.blackrook.ogl.gui.object.OGLGUIPanel;
+
+/**
+ * Benchmarks {@link FlowLayout} and {@link GridLayout} passes on a resized container.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LayoutBenchmark
+{
+	@Param({"100", "1000", "10000"})
+	public int children;
+	
+	@Param({"flow", "grid"})
+	public String layout;
+	
+	private OGLGUIPanel container;
+	private boolean wide;
+	
+	@Setup
+	public void setup()
+	{
+		OGLGUI gui = new OGLGUI(null);
+		container = new OGLGUIPanel(0, 0, 1000, 1000);
+		gui.addObject(container);
+		
+		int side = (int)Math.ceil(Math.sqrt(children));
+		OGLGUILayout l = layout.equals("grid") ? new GridLayout(0, side) : new FlowLayout();
+		
+		gui.beginUpdate();
+		container.setLayout(l);
+		for (int i = 0; i < children; i++)
+			container.addChild(new OGLGUIPanel(0, 0, 8, 8));
+		gui.endUpdate();
+		wide = false;
+	}
+	
+	@Benchmark
+	public void resize()
+	{
+		wide = !wide;
+		container.setDimensions(wide ? 1200 : 1000, 1000);
+	}
+	
+}
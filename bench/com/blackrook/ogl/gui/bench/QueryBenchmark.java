@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackrook.ogl.gui.OGLGUI;
+import com.blackrook.ogl.gui.OGLGUIQuery;
+
+/**
+ * Benchmarks object selection through {@link OGLGUIQuery}.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark
+{
+	@Param({"1000", "10000", "100000"})
+	public int objects;
+	
+	private OGLGUI gui;
+	private OGLGUIQuery root;
+	
+	@Setup
+	public void setup()
+	{
+		gui = BenchmarkScenes.createGrid(objects);
+		root = gui.getByName("root");
+	}
+	
+	@Benchmark
+	public OGLGUIQuery getByName()
+	{
+		return gui.getByName("row7");
+	}
+	
+	@Benchmark
+	public OGLGUIQuery getByPattern()
+	{
+		return root.getDescendants().getByPattern("item1[0-9]*");
+	}
+	
+	@Benchmark
+	public OGLGUIQuery getDescendants()
+	{
+		return root.getDescendants();
+	}
+	
+}
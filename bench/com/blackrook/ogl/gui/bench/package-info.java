@@ -0,0 +1,9 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/** Contains JMH benchmarks for the GUI's hot paths, run by the "benchmark" Ant target, and an event allocation check, run by the "alloccheck" Ant target. */
+package com.blackrook.ogl.gui.bench;
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package com.blackrook.ogl.gui;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 
 import javax.swing.KeyStroke;
@@ -14,8 +16,6 @@ import javax.swing.KeyStroke;
 import com.blackrook.commons.ObjectPair;
 import com.blackrook.commons.ResettableIterator;
 import com.blackrook.commons.hash.HashMap;
-import com.blackrook.commons.hash.HashedQueueMap;
-import com.blackrook.commons.linkedlist.Queue;
 import com.blackrook.commons.list.List;
 import com.blackrook.commons.math.geometry.Rectangle2F;
 import com.blackrook.ogl.OGLGraphics;
@@ -46,6 +46,33 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	private boolean acceptsInput;
 	/** If true, this updates animations during redraw, not independently. */
 	private boolean updateAnimationsDuringDisplay;
+	/** If true, fired events are taken from a per-thread pool instead of created. */
+	private boolean eventPooling;
+	/** If true, fired events are passed on to the ancestors of the objects they occur on. */
+	private boolean eventPropagation;
+	/** If true, mouse movement and gamepad axis changes are collected and delivered once per frame. */
+	private boolean inputCoalescing;
+	/** If true, input is queued and handled on the rendering thread. */
+	private volatile boolean inputQueueing;
+	/** The queue for input, if input is queued. */
+	private OGLGUIInputQueue inputQueue;
+	
+	/** Lock for the pending coalesced input (never held while events are fired). */
+	private final Object pendingInputLock;
+	/** Is there a pending coalesced mouse movement? */
+	private boolean pendingMouseMove;
+	/** Pending mouse movement units, x-axis. */
+	private int pendingMouseUnitsX;
+	/** Pending mouse movement units, y-axis. */
+	private int pendingMouseUnitsY;
+	/** Pending mouse coordinate, x-axis. */
+	private int pendingMouseCoordinateX;
+	/** Pending mouse coordinate, y-axis. */
+	private int pendingMouseCoordinateY;
+	/** Pending gamepad axis changes. */
+	private AxisChanges pendingAxes;
+	/** Spare gamepad axis changes, swapped with the pending ones when they are delivered. Can be null. */
+	private AxisChanges spareAxes;
 	
 	/** Current moused-over object. */
 	private OGLGUIObject objectMouseOver;
@@ -70,16 +97,53 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	private ResettableIterator<ObjectPair<OGLGUIObject, OGLAnimationQueue<OGLGUIObject>>> actionQueueIterator;
 
 	/** List of broadcast actions - keyboard. */
-	private HashedQueueMap<GUIKeyStroke, OGLGUIAction> keyBroadcastMap;
+	private OGLGUIBroadcastMap keyBroadcastMap;
 
 	/** Current modifiers for keys (used with broadcast). */
 	private int currentKeyModifiers;
 	
-	/** Render count "pointer." */
-	private int renderCount;
+	/** Flattened sequence of all objects in the GUI, in render order. */
+	private List<OGLGUIObject> renderSequence;
+	/** For each index in the render sequence, the index just past the end of that object's subtree. */
+	private int[] renderSequenceEnd;
+	/** If true, the render sequence needs to be rebuilt before the next render. */
+	private volatile boolean renderSequenceDirty;
+	/** If true, the root objects' child indices need renumbering before results are sorted. */
+	private boolean rootOrderDirty;
+	/** Scratch array for sorting query results. */
+	private OGLGUIObject[] sortBuffer;
 	
 	/** List of Root GUI Objects. */
 	private List<OGLGUIObject> rootObjects;
+	/** Index of all objects by name and type. */
+	private OGLGUIObjectIndex objectIndex;
+
+	/** Frame profiler, or null if not profiling. */
+	private volatile OGLGUIProfiler profiler;
+
+	/** Nesting depth of {@link #beginUpdate()} calls. */
+	private int updateDepth;
+	/** If true, layout passes are deferred. */
+	private boolean deferringLayout;
+	/** If true, absolute bounds updates are deferred. */
+	private boolean deferringPosition;
+	/** Objects with deferred layout passes. */
+	private List<OGLGUIObject> pendingLayoutObjects;
+	/** Objects with deferred absolute bounds updates. */
+	private List<OGLGUIObject> pendingPositionObjects;
+	/** Amount of layout passes requested during updates. */
+	private long layoutPassesRequested;
+	/** Amount of layout passes run at the end of updates. */
+	private long layoutPassesRun;
+	/** Amount of absolute bounds updates requested during updates. */
+	private long positionPassesRequested;
+	/** Amount of absolute bounds updates run at the end of updates. */
+	private long positionPassesRun;
+
+	/** Spatial index of object bounds for mouse hit-testing. */
+	private OGLGUIHitIndex hitIndex;
+	/** If true, mouse hit-testing uses the spatial index. */
+	private boolean hitIndexEnabled;
 
 	/**
 	 * Creates a new OGLGUIScene instance to be bound to a graphics system.
@@ -100,6 +164,15 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		super(loader, camera);
 		acceptsInput = true;
 		updateAnimationsDuringDisplay = true;
+		eventPooling = false;
+		eventPropagation = false;
+		inputCoalescing = false;
+		inputQueueing = false;
+		inputQueue = new OGLGUIInputQueue();
+		pendingInputLock = new Object();
+		pendingMouseMove = false;
+		pendingAxes = new AxisChanges();
+		spareAxes = new AxisChanges();
 		objectFocus = null;
 		objectMouseOver = null;
 		objectMouseDown = null;
@@ -107,10 +180,23 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		objectMouseDragState = false;
 		calculatedMouseCoordinates = new float[8];
 		rootObjects = new List<OGLGUIObject>(5);
-		renderCount = 0;
+		objectIndex = new OGLGUIObjectIndex();
+		renderSequence = new List<OGLGUIObject>(32);
+		renderSequenceEnd = new int[32];
+		renderSequenceDirty = true;
+		rootOrderDirty = false;
+		sortBuffer = new OGLGUIObject[16];
 		actionQueueMap = new HashMap<OGLGUIObject, OGLAnimationQueue<OGLGUIObject>>();
-		keyBroadcastMap = new HashedQueueMap<GUIKeyStroke, OGLGUIAction>(4);
+		keyBroadcastMap = new OGLGUIBroadcastMap();
 		theme = null;
+		profiler = null;
+		updateDepth = 0;
+		deferringLayout = false;
+		deferringPosition = false;
+		pendingLayoutObjects = new List<OGLGUIObject>(32);
+		pendingPositionObjects = new List<OGLGUIObject>(32);
+		hitIndex = new OGLGUIHitIndex(OGLGUIHitIndex.DEFAULT_CELL_SIZE);
+		hitIndexEnabled = true;
 	}
 
 	/**
@@ -120,7 +206,10 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	{
 		obj.setGUI(this);
 		rootObjects.add(obj);
+		rootOrderDirty = true;
 		addObjectTree(obj);
+		OGLGUITheme.nextGeneration();
+		invalidateRenderSequence();
 	}
 	
 	/**
@@ -129,6 +218,10 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	synchronized void addObjectTree(OGLGUIObject obj)
 	{
 		super.addObject(obj);
+		updateHitIndex(obj);
+		objectIndex.add(obj);
+		if (obj.objectId < 0)
+			obj.objectId = OGLGUIObjectIds.acquire();
 		for (OGLGUIObject child : obj.getChildren())
 		{
 			child.setGUI(this);
@@ -146,7 +239,9 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		{
 			obj.setGUI(null);
 			rootObjects.remove(obj);
+			rootOrderDirty = true;
 			removeObjectTree(obj);
+			invalidateRenderSequence();
 			return true;
 		}
 		return false;
@@ -158,14 +253,419 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	synchronized void removeObjectTree(OGLGUIObject obj)
 	{
 		super.removeObject(obj);
+		removeHitIndex(obj);
+		objectIndex.remove(obj);
+		if (obj.objectId >= 0)
+		{
+			OGLGUIObjectIds.release(obj.objectId);
+			obj.objectId = -1;
+		}
 		for (OGLGUIObject child : obj.getChildren())
 		{
-			obj.setGUI(null);
+			child.setGUI(null);
 			super.removeObject(child);
 			removeObjectTree(child);
 		}
 	}
 
+	/**
+	 * Starts an update: until the matching {@link #endUpdate()}, changes to object bounds, 
+	 * layouts, and children do not lay out children or update absolute bounds right away. 
+	 * Instead, the affected objects are remembered, and when the outermost update ends, 
+	 * each affected subtree is laid out once and then has its absolute bounds updated once.
+	 * <p>Updates can be nested. Every call must be matched by a call to {@link #endUpdate()},
+	 * and both must be called on the same thread that changes the objects.
+	 * @see #batch(Runnable)
+	 */
+	public synchronized void beginUpdate()
+	{
+		if (updateDepth++ == 0)
+		{
+			deferringLayout = true;
+			deferringPosition = true;
+		}
+	}
+	
+	/**
+	 * Ends an update started by {@link #beginUpdate()}. 
+	 * If this ends the outermost update, all deferred layout passes and 
+	 * absolute bounds updates are run.
+	 * @throws IllegalStateException if there is no update to end.
+	 */
+	public synchronized void endUpdate()
+	{
+		if (updateDepth == 0)
+			throw new IllegalStateException("endUpdate() called without beginUpdate().");
+		if (--updateDepth > 0)
+			return;
+		
+		// layouts first - they may move more objects.
+		deferringLayout = false;
+		layoutPassesRun += runPendingUpdates(pendingLayoutObjects, true);
+		deferringPosition = false;
+		positionPassesRun += runPendingUpdates(pendingPositionObjects, false);
+	}
+	
+	/**
+	 * Runs a set of object changes as a single update.
+	 * Equivalent to calling {@link #beginUpdate()}, running <code>changes</code>,
+	 * and calling {@link #endUpdate()}, even if <code>changes</code> throws an exception.
+	 * @param changes the changes to make.
+	 */
+	public void batch(Runnable changes)
+	{
+		beginUpdate();
+		try {
+			changes.run();
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * Returns true if this GUI is in the middle of an update.
+	 * @see #beginUpdate()
+	 */
+	public synchronized boolean isUpdating()
+	{
+		return updateDepth > 0;
+	}
+	
+	/**
+	 * Returns how many layout passes were not run because they were 
+	 * requested during an update and merged with other passes.
+	 * @see #beginUpdate()
+	 */
+	public synchronized long getSavedLayoutPassCount()
+	{
+		return layoutPassesRequested - layoutPassesRun;
+	}
+	
+	/**
+	 * Returns how many absolute bounds updates were not run because they were 
+	 * requested during an update and merged with other updates.
+	 * @see #beginUpdate()
+	 */
+	public synchronized long getSavedPositionPassCount()
+	{
+		return positionPassesRequested - positionPassesRun;
+	}
+	
+	/**
+	 * Returns how many layout passes were run at the end of updates.
+	 * @see #beginUpdate()
+	 */
+	public synchronized long getBatchedLayoutPassCount()
+	{
+		return layoutPassesRun;
+	}
+	
+	/**
+	 * Returns how many absolute bounds updates were run at the end of updates.
+	 * @see #beginUpdate()
+	 */
+	public synchronized long getBatchedPositionPassCount()
+	{
+		return positionPassesRun;
+	}
+	
+	/**
+	 * Resets the update pass counters.
+	 */
+	public synchronized void resetUpdateCounters()
+	{
+		layoutPassesRequested = 0L;
+		layoutPassesRun = 0L;
+		positionPassesRequested = 0L;
+		positionPassesRun = 0L;
+	}
+	
+	/**
+	 * Defers an object's layout pass if this GUI is in an update.
+	 * @return true if deferred, false if the pass should be run now.
+	 */
+	boolean deferLayout(OGLGUIObject object)
+	{
+		if (!deferringLayout)
+			return false;
+		layoutPassesRequested++;
+		if (!object.pendingLayout)
+		{
+			object.pendingLayout = true;
+			pendingLayoutObjects.add(object);
+		}
+		return true;
+	}
+	
+	/**
+	 * Defers an object's absolute bounds update if this GUI is in an update.
+	 * @return true if deferred, false if the update should be run now.
+	 */
+	boolean deferScenePosition(OGLGUIObject object)
+	{
+		if (!deferringPosition)
+			return false;
+		positionPassesRequested++;
+		if (!object.pendingPosition)
+		{
+			object.pendingPosition = true;
+			pendingPositionObjects.add(object);
+		}
+		return true;
+	}
+	
+	/**
+	 * Runs deferred passes on objects, parents before children, skipping objects
+	 * that were already handled by a pass on an ancestor.
+	 * @param pending the list of objects with pending passes. Cleared by this method.
+	 * @param layout if true, run layout passes, if false, run absolute bounds updates.
+	 * @return the amount of passes run.
+	 */
+	private int runPendingUpdates(List<OGLGUIObject> pending, boolean layout)
+	{
+		int count = pending.size();
+		if (count == 0)
+			return 0;
+		
+		// bucket by tree depth so that ancestors go first.
+		int[] depths = new int[count];
+		int maxDepth = 0;
+		for (int i = 0; i < count; i++)
+		{
+			int d = 0;
+			for (OGLGUIObject p = pending.getByIndex(i).getParent(); p != null; p = p.getParent())
+				d++;
+			depths[i] = d;
+			maxDepth = Math.max(maxDepth, d);
+		}
+		int[] starts = new int[maxDepth + 2];
+		for (int i = 0; i < count; i++)
+			starts[depths[i] + 1]++;
+		for (int i = 1; i < starts.length; i++)
+			starts[i] += starts[i - 1];
+		OGLGUIObject[] sorted = new OGLGUIObject[count];
+		for (int i = 0; i < count; i++)
+			sorted[starts[depths[i]]++] = pending.getByIndex(i);
+		pending.clear();
+		
+		int out = 0;
+		for (OGLGUIObject object : sorted)
+		{
+			if (layout && object.pendingLayout)
+			{
+				object.resizeChildren();
+				out++;
+			}
+			else if (!layout && object.pendingPosition)
+			{
+				object.updateScenePosition();
+				out++;
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Flags the render sequence for rebuilding before the next render.
+	 * Called when objects are added, removed, or reordered.
+	 */
+	void invalidateRenderSequence()
+	{
+		renderSequenceDirty = true;
+	}
+
+	/**
+	 * Flags the root objects' order as changed.
+	 * Called when root objects are reordered.
+	 */
+	void invalidateRootOrder()
+	{
+		rootOrderDirty = true;
+	}
+
+	/**
+	 * Sorts objects into tree order (the order of a walk of the root objects
+	 * and their descendants, parents before children), and adds them to a query result.
+	 * Objects are compared by their ancestors' positions among their siblings, so no
+	 * numbering of the whole GUI is needed: only child lists that changed since the
+	 * last sort are renumbered, and only if objects under them are compared.
+	 * @param objects the objects to add.
+	 * @param out the output query result.
+	 */
+	synchronized void addInTreeOrder(List<OGLGUIObject> objects, OGLGUIQuery out)
+	{
+		if (rootOrderDirty)
+		{
+			rootOrderDirty = false;
+			numberChildren(rootObjects);
+		}
+		
+		int count = objects.size();
+		if (sortBuffer.length < count)
+			sortBuffer = new OGLGUIObject[Math.max(count, sortBuffer.length * 2)];
+		for (int i = 0; i < count; i++)
+			sortBuffer[i] = objects.getByIndex(i);
+		Arrays.sort(sortBuffer, 0, count, TREE_ORDER);
+		for (int i = 0; i < count; i++)
+		{
+			out.add(sortBuffer[i]);
+			sortBuffer[i] = null;
+		}
+	}
+
+	// Sets the child index of each object in a child list.
+	private static void numberChildren(List<OGLGUIObject> children)
+	{
+		for (int i = 0; i < children.size(); i++)
+			children.getByIndex(i).childIndex = i;
+	}
+
+	// Gets an object's position among its siblings, renumbering them if they changed.
+	private static int getChildIndex(OGLGUIObject obj)
+	{
+		OGLGUIObject parent = obj.getParent();
+		if (parent != null && parent.childOrderDirty)
+		{
+			parent.childOrderDirty = false;
+			numberChildren(parent.getChildren());
+		}
+		return obj.childIndex;
+	}
+
+	// Gets an object's depth in its tree (0 for root objects).
+	private static int getDepth(OGLGUIObject obj)
+	{
+		int out = 0;
+		for (OGLGUIObject p = obj.getParent(); p != null; p = p.getParent())
+			out++;
+		return out;
+	}
+
+	/** Compares objects by tree order. */
+	private static final Comparator<OGLGUIObject> TREE_ORDER = new Comparator<OGLGUIObject>()
+	{
+		@Override
+		public int compare(OGLGUIObject o1, OGLGUIObject o2)
+		{
+			if (o1 == o2)
+				return 0;
+			
+			int depth1 = getDepth(o1);
+			int depth2 = getDepth(o2);
+			OGLGUIObject a1 = o1;
+			OGLGUIObject a2 = o2;
+			for (int d = depth1; d > depth2; d--)
+				a1 = a1.getParent();
+			for (int d = depth2; d > depth1; d--)
+				a2 = a2.getParent();
+			
+			// one is an ancestor of the other - parents come first.
+			if (a1 == a2)
+				return depth1 < depth2 ? -1 : 1;
+			
+			while (a1.getParent() != a2.getParent())
+			{
+				a1 = a1.getParent();
+				a2 = a2.getParent();
+			}
+			int index1 = getChildIndex(a1);
+			int index2 = getChildIndex(a2);
+			return index1 < index2 ? -1 : (index1 > index2 ? 1 : 0);
+		}
+	};
+
+	/**
+	 * Adds an object's new name to the name index.
+	 * Called when an object in this GUI gets a name.
+	 */
+	synchronized void indexName(OGLGUIObject obj, String name)
+	{
+		objectIndex.addName(obj, name);
+	}
+
+	/**
+	 * Removes an object's name from the name index.
+	 * Called when an object in this GUI loses a name.
+	 */
+	synchronized void unindexName(OGLGUIObject obj, String name)
+	{
+		objectIndex.removeName(obj, name);
+	}
+
+	/**
+	 * Updates an object's entry in the hit-testing index.
+	 * Called when an object's absolute bounds change.
+	 */
+	void updateHitIndex(OGLGUIObject obj)
+	{
+		synchronized (hitIndex)
+		{
+			hitIndex.update(obj);
+		}
+	}
+
+	/**
+	 * Removes an object's entry from the hit-testing index.
+	 */
+	void removeHitIndex(OGLGUIObject obj)
+	{
+		synchronized (hitIndex)
+		{
+			hitIndex.remove(obj);
+		}
+	}
+
+	/**
+	 * Gets if mouse hit-testing uses this GUI's spatial index of object bounds.
+	 * If false, every object in the GUI is tested on each mouse movement.
+	 * <p>By default, this is true.
+	 */
+	public boolean isHitIndexEnabled()
+	{
+		return hitIndexEnabled;
+	}
+
+	/**
+	 * Sets if mouse hit-testing uses this GUI's spatial index of object bounds.
+	 * If false, every object in the GUI is tested on each mouse movement.
+	 * The index is still kept up to date regardless of this setting.
+	 * <p>By default, this is true.
+	 * @param value the new value.
+	 */
+	public void setHitIndexEnabled(boolean value)
+	{
+		hitIndexEnabled = value;
+	}
+
+	/**
+	 * Gets the size, in units, of a single cell in the hit-testing index.
+	 */
+	public float getHitIndexCellSize()
+	{
+		return hitIndex.getCellSize();
+	}
+
+	/**
+	 * Sets the size, in units, of a single cell in the hit-testing index, and rebuilds the index.
+	 * Smaller cells mean fewer objects tested per mouse movement, but more memory and 
+	 * more work when objects move. Objects that would span a large amount of cells 
+	 * are kept out of the grid and are always tested.
+	 * @param size the new cell size in units.
+	 * @throws IllegalArgumentException if size is 0 or less.
+	 */
+	public synchronized void setHitIndexCellSize(float size)
+	{
+		if (size <= 0f)
+			throw new IllegalArgumentException("Cell size must be greater than 0.");
+		
+		synchronized (hitIndex)
+		{
+			hitIndex.reset(size);
+			for (OGLGUIObject obj : sceneObjects)
+				hitIndex.update(obj);
+		}
+	}
+
 	/**
 	 * Gets the root objects.
 	 */
@@ -238,6 +738,61 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		this.acceptsInput = acceptsInput;
 	}
 
+	/**
+	 * Gets if this GUI queues input to be handled on the rendering thread.
+	 * <p>By default, this is false.
+	 * @see #setInputQueueEnabled(boolean)
+	 */
+	public boolean isInputQueueEnabled()
+	{
+		return inputQueueing;
+	}
+	
+	/**
+	 * Sets if this GUI queues input to be handled on the rendering thread.
+	 * If true, the input methods (<code>glKeyPress</code>, <code>glMouseMove</code>, etc.)
+	 * only add a small record to a lock-free queue, and the GUI handles the queued input
+	 * in order at the start of the next {@link #display(OGLGraphics)}, so that 
+	 * objects and actions are only ever touched by the rendering thread.
+	 * <p>Since queued input is not handled right away, the input methods that return
+	 * whether the input was handled return true for all queued input (except for the mouse wheel, 
+	 * which is never reported as handled), and never look at the GUI's state from the calling thread.
+	 * <p>By default, this is false.
+	 * @param value the new value.
+	 */
+	public void setInputQueueEnabled(boolean value)
+	{
+		inputQueueing = value;
+	}
+
+	/**
+	 * Gets if this GUI coalesces mouse movement and gamepad axis changes.
+	 * <p>By default, this is false.
+	 * @see #setInputCoalescingEnabled(boolean)
+	 */
+	public boolean isInputCoalescingEnabled()
+	{
+		return inputCoalescing;
+	}
+	
+	/**
+	 * Sets if this GUI coalesces mouse movement and gamepad axis changes.
+	 * If true, mouse movements and gamepad axis changes are collected instead of 
+	 * handled right away, and are delivered as one mouse move (or drag) event 
+	 * with the summed movement, and one axis event per changed axis with its latest value,
+	 * at the start of the next {@link #display(OGLGraphics)}.
+	 * <p>Pending movement is always delivered before any other input (presses, 
+	 * releases, wheel, key typing), so the order of events relative to those is kept.
+	 * <p>By default, this is false.
+	 * @param value the new value.
+	 */
+	public void setInputCoalescingEnabled(boolean value)
+	{
+		if (!value)
+			flushCoalescedInput();
+		inputCoalescing = value;
+	}
+
 	/**
 	 * Adds a broadcast key event to this GUI.
 	 * All keystrokes made to this GUI perform the associated {@link KeyStroke}.
@@ -246,7 +801,7 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	public void bindBroadcastAction(GUIKeyStroke keystroke, OGLGUIAction action)
 	{
-		keyBroadcastMap.enqueue(keystroke, action);
+		keyBroadcastMap.add(keystroke.getPackedKey(), action);
 	}
 	
 	/**
@@ -256,7 +811,7 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	public boolean unbindBroadcastAction(GUIKeyStroke keystroke, OGLGUIAction action)
 	{
-		return keyBroadcastMap.removeValue(keystroke, action);
+		return keyBroadcastMap.remove(keystroke.getPackedKey(), action);
 	}
 	
 	/**
@@ -266,7 +821,7 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	public boolean unbindAllBroadcastActions(GUIKeyStroke keystroke)
 	{
-		return keyBroadcastMap.removeUsingKey(keystroke) != null;
+		return keyBroadcastMap.removeAll(keystroke.getPackedKey());
 	}
 	
 	/**
@@ -287,12 +842,12 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (object != objectFocus)
 		{
 			if (objectFocus != null)
-				fireGUIEvent(objectFocus, OGLGUIObject.EVENT_BLUR);
+				fireGUIEvent(objectFocus, OGLGUIObject.EVENT_ID_BLUR);
 			
 			objectFocus = object;
 		
 			if (objectFocus != null)
-				fireGUIEvent(objectFocus, OGLGUIObject.EVENT_FOCUS);
+				fireGUIEvent(objectFocus, OGLGUIObject.EVENT_ID_FOCUS);
 		}
 	}
 	
@@ -331,6 +886,7 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	public void setTheme(OGLGUITheme theme)
 	{
 		this.theme = theme;
+		OGLGUITheme.nextGeneration();
 	}
 	
 	/**
@@ -345,6 +901,45 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		return out;
 	}
 	
+	/**
+	 * Gets all GUI Objects that match a CSS-like selector, such as
+	 * <code>"OGLGUIFrame &gt; .content OGLGUILabel[visible]:focused"</code>.
+	 * Selectors are compiled once and cached. Each selector chain that ends in a name or type 
+	 * only tests the objects with that name or type (from the GUI's index), and the rest are 
+	 * found in a single walk of the object trees.
+	 * <p>Selectors are comma-separated chains of compound selectors separated by whitespace (descendant)
+	 * or <code>&gt;</code> (child). A compound selector is an optional simple class name (or <code>*</code>), 
+	 * then any amount of <code>.name</code>, <code>:state</code>, or <code>[state]</code>. Names with characters 
+	 * other than letters, digits, <code>_</code>, <code>-</code> and <code>$</code> must be quoted, 
+	 * as in <code>."ok.button"</code>. The states are
+	 * <code>visible</code>, <code>hidden</code>, <code>enabled</code>, <code>disabled</code>, <code>focused</code>, 
+	 * <code>animating</code>, <code>oncamera</code>, <code>set</code>, <code>unset</code>, <code>root</code>, 
+	 * <code>empty</code>, <code>first-child</code>, and <code>last-child</code>.
+	 * A class name matches objects of that class or any subclass.
+	 * @param selector the selector.
+	 * @return a query result, in tree order.
+	 * @throws IllegalArgumentException if the selector can't be parsed.
+	 */
+	public synchronized OGLGUIQuery select(String selector)
+	{
+		List<OGLGUIObject> found = new List<OGLGUIObject>(8);
+		OGLGUISelector.get(selector).select(rootObjects, objectIndex, found);
+		OGLGUIQuery out = new OGLGUIQuery();
+		addInTreeOrder(found, out);
+		return out;
+	}
+	
+	/**
+	 * Gets all GUI Objects as a lazy query, which does not search anything 
+	 * until its results are asked for.
+	 * @return a new lazy query.
+	 * @see OGLGUILazyQuery
+	 */
+	public OGLGUILazyQuery getAllLazy()
+	{
+		return new OGLGUILazyQuery(this);
+	}
+	
 	/**
 	 * Gets all GUI Objects. 
 	 * @return a query result.
@@ -375,41 +970,50 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	}
 	
 	/**
-	 * Gets all GUI Objects with a matching name. 
+	 * Gets all GUI Objects with a matching name, in tree order. 
+	 * This uses the GUI's name index, so it takes time proportional to the amount
+	 * of objects found.
 	 * @param name the name to use.
 	 * @return a query result.
 	 */
 	public synchronized OGLGUIQuery getByName(String name)
 	{
+		List<OGLGUIObject> found = new List<OGLGUIObject>(8);
+		objectIndex.getByName(name, found);
 		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject obj : rootObjects)
-			obj.getNameMatchesInTree(name, out);
+		addInTreeOrder(found, out);
 		return out;
 	}
 	
 	/**
-	 * Gets all GUI Objects with a matching name regex pattern. 
+	 * Gets all GUI Objects with a matching name regex pattern, in tree order. 
+	 * This uses the GUI's name index, so the pattern is tested once per distinct name
+	 * instead of once per object name.
 	 * @param name the name to use.
 	 * @return a query result.
 	 */
 	public synchronized OGLGUIQuery getByPattern(String name)
 	{
+		List<OGLGUIObject> found = new List<OGLGUIObject>(8);
+		objectIndex.getByPattern(name, found);
 		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject obj : rootObjects)
-			obj.getNamePatternMatchesInTree(name, out);
+		addInTreeOrder(found, out);
 		return out;
 	}
 	
 	/**
-	 * Gets all GUI Objects with a matching name.
+	 * Gets all GUI Objects with a matching name, in tree order.
+	 * This uses the GUI's type index, so it takes time proportional to the amount
+	 * of distinct classes plus objects found.
 	 * @param clazz the class type to search on. 
 	 * @return a query result.
 	 */
 	public synchronized OGLGUIQuery getByType(Class<?> clazz)
 	{
+		List<OGLGUIObject> found = new List<OGLGUIObject>(8);
+		objectIndex.getByType(clazz, found);
 		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject obj : rootObjects)
-			obj.getTypeMatchesInTree(clazz, out);
+		addInTreeOrder(found, out);
 		return out;
 	}
 	
@@ -428,13 +1032,31 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.KEY_PRESS, keycode, 0, 0, 0, 0f);
+			return true;
+		}
+		return inputKeyPress(keycode);
+	}
+	
+	/**
+	 * Handles a keyboard key press.
+	 */
+	private boolean inputKeyPress(int keycode)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		setKeyMask(keycode, false);
 		
 		boolean handled = fireBroadcastKeyEvent(keycode, false);
 		
 		if (objectFocus != null)
 		{
-			fireKeyboardEvent(objectFocus, OGLGUIObject.EVENT_KEY_PRESS, keycode);
+			fireKeyboardEvent(objectFocus, OGLGUIObject.EVENT_ID_KEY_PRESS, keycode);
 			handled = true;
 		}
 		return handled;
@@ -445,6 +1067,24 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	{
 		if (!isAcceptingInput())
 			return false;
+		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.KEY_RELEASE, keycode, 0, 0, 0, 0f);
+			return true;
+		}
+		return inputKeyRelease(keycode);
+	}
+	
+	/**
+	 * Handles a keyboard key release.
+	 */
+	private boolean inputKeyRelease(int keycode)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
 
 		setKeyMask(keycode, true);
 
@@ -452,7 +1092,7 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 
 		if (objectFocus != null)
 		{
-			fireKeyboardEvent(objectFocus, OGLGUIObject.EVENT_KEY_RELEASE, keycode);
+			fireKeyboardEvent(objectFocus, OGLGUIObject.EVENT_ID_KEY_RELEASE, keycode);
 			handled = true;
 		}
 		return handled;
@@ -464,9 +1104,27 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.KEY_TYPED, keycode, 0, 0, 0, 0f);
+			return true;
+		}
+		return inputKeyTyped(keycode);
+	}
+	
+	/**
+	 * Handles a keyboard key type.
+	 */
+	private boolean inputKeyTyped(int keycode)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		if (objectFocus != null)
 		{
-			fireKeyboardEvent(objectFocus, OGLGUIObject.EVENT_KEY_TYPE, keycode);
+			fireKeyboardEvent(objectFocus, OGLGUIObject.EVENT_ID_KEY_TYPE, keycode);
 			return true;
 		}
 		return false;
@@ -478,11 +1136,29 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
-		boolean handled = fireBroadcastGamepadButtonEvent(gamepadId, gamepadButton, false);
-
-		if (objectFocus != null)
+		if (inputQueueing)
 		{
-			fireGamepadEvent(objectFocus, OGLGUIObject.EVENT_GAMEPAD_PRESS, gamepadId, gamepadButton);
+			inputQueue.add(OGLGUIInputQueue.GAMEPAD_PRESS, gamepadId, gamepadButton, 0, 0, 0f);
+			return true;
+		}
+		return inputGamepadPress(gamepadId, gamepadButton);
+	}
+	
+	/**
+	 * Handles a gamepad button press.
+	 */
+	private boolean inputGamepadPress(int gamepadId, int gamepadButton)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
+		boolean handled = fireBroadcastGamepadButtonEvent(gamepadId, gamepadButton, false);
+
+		if (objectFocus != null)
+		{
+			fireGamepadEvent(objectFocus, OGLGUIObject.EVENT_ID_GAMEPAD_PRESS, gamepadId, gamepadButton);
 			handled = true;
 		}
 		
@@ -495,11 +1171,29 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.GAMEPAD_RELEASE, gamepadId, gamepadButton, 0, 0, 0f);
+			return true;
+		}
+		return inputGamepadRelease(gamepadId, gamepadButton);
+	}
+	
+	/**
+	 * Handles a gamepad button release.
+	 */
+	private boolean inputGamepadRelease(int gamepadId, int gamepadButton)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		boolean handled = fireBroadcastGamepadButtonEvent(gamepadId, gamepadButton, true);
 
 		if (objectFocus != null)
 		{
-			fireGamepadEvent(objectFocus, OGLGUIObject.EVENT_GAMEPAD_RELEASE, gamepadId, gamepadButton);
+			fireGamepadEvent(objectFocus, OGLGUIObject.EVENT_ID_GAMEPAD_RELEASE, gamepadId, gamepadButton);
 			handled = true;
 		}
 		
@@ -512,9 +1206,31 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.GAMEPAD_AXIS, gamepadId, gamepadAxisId, 0, 0, value);
+			return true;
+		}
+		return inputGamepadAxisChange(gamepadId, gamepadAxisId, value);
+	}
+	
+	/**
+	 * Handles a gamepad axis change.
+	 */
+	private boolean inputGamepadAxisChange(int gamepadId, int gamepadAxisId, float value)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		if (inputCoalescing)
+		{
+			coalesceGamepadAxis(gamepadId, gamepadAxisId, value);
+			return objectFocus != null;
+		}
+		
 		if (objectFocus != null)
 		{
-			fireGamepadAxisEvent(objectFocus, OGLGUIObject.EVENT_GAMEPAD_AXIS, gamepadId, gamepadAxisId, value);
+			fireGamepadAxisEvent(objectFocus, OGLGUIObject.EVENT_ID_GAMEPAD_AXIS, gamepadId, gamepadAxisId, value);
 			return true;
 		}
 		return false;
@@ -526,11 +1242,29 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.GAMEPAD_TAP, gamepadId, gamepadAxisId, position ? 1 : 0, 0, 0f);
+			return true;
+		}
+		return inputGamepadAxisTap(gamepadId, gamepadAxisId, position);
+	}
+	
+	/**
+	 * Handles a gamepad axis tap.
+	 */
+	private boolean inputGamepadAxisTap(int gamepadId, int gamepadAxisId, boolean position)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		boolean handled = fireBroadcastGamepadTapEvent(gamepadId, gamepadAxisId, position);
 
 		if (objectFocus != null)
 		{
-			fireGamepadTapEvent(objectFocus, OGLGUIObject.EVENT_GAMEPAD_TAP, gamepadId, gamepadAxisId, position);
+			fireGamepadTapEvent(objectFocus, OGLGUIObject.EVENT_ID_GAMEPAD_TAP, gamepadId, gamepadAxisId, position);
 			handled = true;
 		}
 		
@@ -543,11 +1277,29 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.MOUSE_PRESS, mousebutton, 0, 0, 0, 0f);
+			return true;
+		}
+		return inputMousePress(mousebutton);
+	}
+	
+	/**
+	 * Handles a mouse button press.
+	 */
+	private boolean inputMousePress(int mousebutton)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		objectMouseDragState = false;
 		
 		if (objectMouseOver != null)
 		{
-			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_MOUSE_PRESS, mousebutton);
+			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_ID_MOUSE_PRESS, mousebutton);
 			objectMouseDown = objectMouseOver;
 			objectMouseDownButton = mousebutton;
 			return true;
@@ -562,12 +1314,30 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.MOUSE_RELEASE, mousebutton, 0, 0, 0, 0f);
+			return true;
+		}
+		return inputMouseRelease(mousebutton);
+	}
+	
+	/**
+	 * Handles a mouse button release.
+	 */
+	private boolean inputMouseRelease(int mousebutton)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		if (objectMouseDown != null)
 		{
 			if (objectMouseOver != null)
-				fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_MOUSE_RELEASE, mousebutton);
+				fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_ID_MOUSE_RELEASE, mousebutton);
 			if (objectMouseDown == objectMouseOver && !objectMouseDragState)
-				fireMouseEvent(objectMouseDown, OGLGUIObject.EVENT_MOUSE_CLICK, mousebutton);
+				fireMouseEvent(objectMouseDown, OGLGUIObject.EVENT_ID_MOUSE_CLICK, mousebutton);
 			objectMouseDown = null;
 			objectMouseDownButton = -1;
 			objectMouseDragState = false;
@@ -582,6 +1352,24 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		if (!isAcceptingInput())
 			return false;
 		
+		if (inputQueueing)
+		{
+			inputQueue.add(OGLGUIInputQueue.MOUSE_WHEEL, units, 0, 0, 0, 0f);
+			return false;
+		}
+		return inputMouseWheel(units);
+	}
+	
+	/**
+	 * Handles a mouse wheel movement.
+	 */
+	private boolean inputMouseWheel(int units)
+	{
+		if (!isAcceptingInput())
+			return false;
+		
+		flushCoalescedInput();
+		
 		if (objectFocus != null)
 			fireMouseWheelEvent(objectFocus, units);
 		return false;
@@ -589,28 +1377,183 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	
 	@Override
 	public void glMouseMove(int unitsX, int coordinateX, int unitsY, int coordinateY)
+	{
+		if (inputQueueing)
+			inputQueue.add(OGLGUIInputQueue.MOUSE_MOVE, unitsX, coordinateX, unitsY, coordinateY, 0f);
+		else
+			inputMouseMove(unitsX, coordinateX, unitsY, coordinateY);
+	}
+	
+	/**
+	 * Handles a mouse movement.
+	 */
+	private void inputMouseMove(int unitsX, int coordinateX, int unitsY, int coordinateY)
 	{
 		if (!isAcceptingInput()) 
 			return;
 
+		if (inputCoalescing)
+			coalesceMouseMove(unitsX, coordinateX, unitsY, coordinateY);
+		else
+			handleMouseMove(unitsX, coordinateX, unitsY, coordinateY);
+	}
+
+	/**
+	 * Handles a mouse movement: updates mouse coordinates and fires a mouse move or drag event.
+	 */
+	private void handleMouseMove(int unitsX, int coordinateX, int unitsY, int coordinateY)
+	{
 		super.glMouseMove(unitsX, coordinateX, unitsY, coordinateY);
 		setMouseCoordinates(unitsX, coordinateX, unitsY, coordinateY, calculatedMouseCoordinates);
 		
 		if (objectMouseDown != null)
 		{
-			objectMouseDragState = objectMouseDown.hasAction(OGLGUIObject.EVENT_MOUSE_DRAG);
-			if (objectMouseDragState)
-				fireMouseEvent(objectMouseDown, OGLGUIObject.EVENT_MOUSE_DRAG, objectMouseDownButton);
+			// only the object's own drag actions stop it from getting clicked; propagated ones don't.
+			objectMouseDragState = objectMouseDown.hasAction(OGLGUIObject.EVENT_ID_MOUSE_DRAG);
+			if (hasEventAction(objectMouseDown, OGLGUIObject.EVENT_ID_MOUSE_DRAG))
+				fireMouseEvent(objectMouseDown, OGLGUIObject.EVENT_ID_MOUSE_DRAG, objectMouseDownButton);
 		}
 		else if (objectMouseOver != null)
-			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_MOUSE_MOVE);
+			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_ID_MOUSE_MOVE);
+	}
+
+	// Adds a mouse movement to the pending movement.
+	private void coalesceMouseMove(int unitsX, int coordinateX, int unitsY, int coordinateY)
+	{
+		synchronized (pendingInputLock)
+		{
+			pendingMouseUnitsX += unitsX;
+			pendingMouseUnitsY += unitsY;
+			pendingMouseCoordinateX = coordinateX;
+			pendingMouseCoordinateY = coordinateY;
+			pendingMouseMove = true;
+		}
+	}
+	
+	// Sets the pending value of a gamepad axis.
+	private void coalesceGamepadAxis(int gamepadId, int gamepadAxisId, float value)
+	{
+		synchronized (pendingInputLock)
+		{
+			pendingAxes.set(gamepadId, gamepadAxisId, value);
+		}
+	}
+	
+	/**
+	 * Handles all queued input, in the order it was received.
+	 * This is called at the start of each {@link #display(OGLGraphics)}.
+	 */
+	protected void drainInputQueue()
+	{
+		OGLGUIInputQueue.Record record;
+		while ((record = inputQueue.poll()) != null) switch (record.type)
+		{
+			case OGLGUIInputQueue.KEY_PRESS:
+				inputKeyPress(record.arg0);
+				break;
+			case OGLGUIInputQueue.KEY_RELEASE:
+				inputKeyRelease(record.arg0);
+				break;
+			case OGLGUIInputQueue.KEY_TYPED:
+				inputKeyTyped(record.arg0);
+				break;
+			case OGLGUIInputQueue.GAMEPAD_PRESS:
+				inputGamepadPress(record.arg0, record.arg1);
+				break;
+			case OGLGUIInputQueue.GAMEPAD_RELEASE:
+				inputGamepadRelease(record.arg0, record.arg1);
+				break;
+			case OGLGUIInputQueue.GAMEPAD_AXIS:
+				inputGamepadAxisChange(record.arg0, record.arg1, record.value);
+				break;
+			case OGLGUIInputQueue.GAMEPAD_TAP:
+				inputGamepadAxisTap(record.arg0, record.arg1, record.arg2 != 0);
+				break;
+			case OGLGUIInputQueue.MOUSE_PRESS:
+				inputMousePress(record.arg0);
+				break;
+			case OGLGUIInputQueue.MOUSE_RELEASE:
+				inputMouseRelease(record.arg0);
+				break;
+			case OGLGUIInputQueue.MOUSE_WHEEL:
+				inputMouseWheel(record.arg0);
+				break;
+			case OGLGUIInputQueue.MOUSE_MOVE:
+				inputMouseMove(record.arg0, record.arg1, record.arg2, record.arg3);
+				break;
+			case OGLGUIInputQueue.MOUSE_EXIT:
+				inputMouseExit();
+				break;
+		}
+	}
+	
+	/**
+	 * Delivers pending coalesced mouse movement and gamepad axis changes, if any.
+	 * This is called at the start of each {@link #display(OGLGraphics)} and before 
+	 * handling any other input. The pending input is taken under its own lock, 
+	 * and the events are fired after releasing it.
+	 */
+	protected void flushCoalescedInput()
+	{
+		boolean mouseMove;
+		int unitsX;
+		int unitsY;
+		int coordinateX;
+		int coordinateY;
+		AxisChanges axes = null;
+		synchronized (pendingInputLock)
+		{
+			mouseMove = pendingMouseMove;
+			unitsX = pendingMouseUnitsX;
+			unitsY = pendingMouseUnitsY;
+			coordinateX = pendingMouseCoordinateX;
+			coordinateY = pendingMouseCoordinateY;
+			pendingMouseMove = false;
+			pendingMouseUnitsX = 0;
+			pendingMouseUnitsY = 0;
+			
+			if (pendingAxes.count > 0)
+			{
+				axes = pendingAxes;
+				pendingAxes = spareAxes != null ? spareAxes : new AxisChanges();
+				spareAxes = null;
+			}
+		}
+		
+		if (mouseMove)
+			handleMouseMove(unitsX, coordinateX, unitsY, coordinateY);
+		
+		if (axes != null)
+		{
+			if (objectFocus != null) for (int i = 0; i < axes.count; i++)
+				fireGamepadAxisEvent(objectFocus, OGLGUIObject.EVENT_ID_GAMEPAD_AXIS, axes.gamepadIds[i], axes.axisIds[i], axes.values[i]);
+			axes.count = 0;
+			synchronized (pendingInputLock)
+			{
+				if (spareAxes == null)
+					spareAxes = axes;
+			}
+		}
 	}
 
 	@Override
 	public void glMouseExit()
 	{
+		if (inputQueueing)
+			inputQueue.add(OGLGUIInputQueue.MOUSE_EXIT, 0, 0, 0, 0, 0f);
+		else
+			inputMouseExit();
+	}
+	
+	/**
+	 * Handles a mouse exit.
+	 */
+	private void inputMouseExit()
+	{
+		flushCoalescedInput();
+		
 		if (objectMouseOver != null)
-			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_MOUSE_LEAVE);
+			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_ID_MOUSE_LEAVE);
 	
 		objectMouseOver = null;
 	}
@@ -654,6 +1597,232 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 		updateAnimationsDuringDisplay = value;
 	}
 	
+	/**
+	 * Gets if this GUI reuses pooled {@link OGLGUIEvent} objects when firing events,
+	 * instead of creating a new one for each event.
+	 * <p>By default, this is false.
+	 */
+	public boolean isEventPoolingEnabled()
+	{
+		return eventPooling;
+	}
+	
+	/**
+	 * Sets if this GUI reuses pooled {@link OGLGUIEvent} objects when firing events,
+	 * instead of creating a new one for each event.
+	 * <p>If true, an event passed to an action is only valid until that action returns:
+	 * afterward, it is cleared and reused for a later event. Actions that need to
+	 * keep an event must keep an {@link OGLGUIEvent#copy()} of it. 
+	 * <p>By default, this is false.
+	 * @param value the new value.
+	 */
+	public void setEventPoolingEnabled(boolean value)
+	{
+		eventPooling = value;
+	}
+	
+	/**
+	 * Gets if this GUI passes events on to the ancestors of the objects they occur on.
+	 * <p>By default, this is false.
+	 * @see #setEventPropagationEnabled(boolean)
+	 */
+	public boolean isEventPropagationEnabled()
+	{
+		return eventPropagation;
+	}
+	
+	/**
+	 * Sets if this GUI passes events on to the ancestors of the objects they occur on,
+	 * so that a single action bound on a container can handle events for all of its descendants.
+	 * <p>If true, an event on an object is first passed to the capture actions of its
+	 * ancestors, from the topmost down (see {@link OGLGUIObject#bindCaptureAction(OGLGUIAction, String...)}), 
+	 * then to the object's own actions, and then to the actions of its ancestors, from
+	 * its parent up. {@link OGLGUIEvent#getTarget()} is the object that the event occurred on,
+	 * and {@link OGLGUIEvent#getObject()} is the object whose actions are being called.
+	 * Any action can stop this with {@link OGLGUIEvent#stopPropagation()}.
+	 * <p>Mouse over/leave and focus/blur events are never passed on. 
+	 * <p>Propagation does not change which events occur on an object: mouse drag events are
+	 * passed on to ancestors with drag actions, but only an object's own drag actions
+	 * keep it from getting a click when the mouse moves between press and release.
+	 * <p>By default, this is false.
+	 * @param value the new value.
+	 */
+	public void setEventPropagationEnabled(boolean value)
+	{
+		eventPropagation = value;
+	}
+	
+	/**
+	 * Gets if this GUI records frame timings and counts.
+	 * @see #setProfilingEnabled(boolean)
+	 */
+	public boolean isProfilingEnabled()
+	{
+		return profiler != null;
+	}
+	
+	/**
+	 * Sets if this GUI records frame timings and counts into an {@link OGLGUIProfiler}.
+	 * Enabling this creates a new profiler, and disabling it discards it.
+	 * When disabled, no timings are taken.
+	 * <p>By default, this is false.
+	 * @param value the new value.
+	 * @see #getProfiler()
+	 */
+	public void setProfilingEnabled(boolean value)
+	{
+		if (value && profiler == null)
+			profiler = new OGLGUIProfiler();
+		else if (!value)
+			profiler = null;
+	}
+	
+	/**
+	 * Gets the profiler that this GUI records frame timings and counts into.
+	 * @return the profiler, or null if profiling is not enabled.
+	 * @see #setProfilingEnabled(boolean)
+	 */
+	public OGLGUIProfiler getProfiler()
+	{
+		return profiler;
+	}
+	
+	/**
+	 * Gets a fresh event to fill in and fire, pooled if event pooling is enabled.
+	 * Must be matched by a call to {@link #releaseEvent(OGLGUIEvent)} on the same thread.
+	 */
+	OGLGUIEvent acquireEvent()
+	{
+		return eventPooling ? OGLGUIEventPool.acquire() : new OGLGUIEvent();
+	}
+	
+	/**
+	 * Releases an event acquired by {@link #acquireEvent()}.
+	 */
+	void releaseEvent(OGLGUIEvent event)
+	{
+		OGLGUIEventPool.release(event);
+	}
+	
+	/**
+	 * Calls an event on an object and releases it afterward.
+	 */
+	private void dispatchEvent(OGLGUIObject object, OGLGUIEvent event)
+	{
+		event.setTarget(object);
+		OGLGUIProfiler profiler = this.profiler;
+		long start = 0L;
+		if (profiler != null)
+		{
+			profiler.count(OGLGUIProfiler.COUNTER_EVENTS, 1);
+			start = profiler.begin(OGLGUIProfiler.PHASE_ACTIONS);
+		}
+		try {
+			if (eventPropagation && isPropagatedEvent(event.getTypeId()))
+				propagateEvent(object, event);
+			else
+				object.callEvent(event);
+		} finally {
+			if (profiler != null)
+				profiler.end(OGLGUIProfiler.PHASE_ACTIONS, start);
+			releaseEvent(event);
+		}
+	}
+	
+	/**
+	 * Passes an event through an object's ancestors' capture actions, the object,
+	 * and then its ancestors' actions, stopping if the event's propagation is stopped.
+	 */
+	private void propagateEvent(OGLGUIObject object, OGLGUIEvent event)
+	{
+		OGLGUIObject parent = object.getParent();
+		
+		event.setPhase(OGLGUIEvent.Phase.CAPTURE);
+		if (parent != null)
+			captureEvent(parent, event);
+		if (event.isPropagationStopped())
+			return;
+		
+		event.setPhase(OGLGUIEvent.Phase.TARGET);
+		event.setObject(object);
+		object.callEvent(event);
+		
+		event.setPhase(OGLGUIEvent.Phase.BUBBLE);
+		while (parent != null && !event.isPropagationStopped())
+		{
+			event.setObject(parent);
+			parent.callEvent(event);
+			parent = parent.getParent();
+		}
+	}
+	
+	// Calls capture actions from the topmost ancestor down to this object.
+	private void captureEvent(OGLGUIObject object, OGLGUIEvent event)
+	{
+		OGLGUIObject parent = object.getParent();
+		if (parent != null)
+			captureEvent(parent, event);
+		if (event.isPropagationStopped())
+			return;
+		event.setObject(object);
+		object.callCaptureEvent(event);
+	}
+	
+	/**
+	 * Returns true if events of a type are passed on to ancestors when event propagation is on.
+	 */
+	private static boolean isPropagatedEvent(int typeId)
+	{
+		switch (typeId)
+		{
+			case OGLGUIObject.EVENT_ID_MOUSE_OVER:
+			case OGLGUIObject.EVENT_ID_MOUSE_LEAVE:
+			case OGLGUIObject.EVENT_ID_FOCUS:
+			case OGLGUIObject.EVENT_ID_BLUR:
+				return false;
+			default:
+				return true;
+		}
+	}
+	
+	/**
+	 * Returns true if an event of a type on an object would call at least one action,
+	 * including propagated actions on its ancestors.
+	 */
+	private boolean hasEventAction(OGLGUIObject object, int typeId)
+	{
+		if (object.hasAction(typeId))
+			return true;
+		if (!eventPropagation || !isPropagatedEvent(typeId))
+			return false;
+		for (OGLGUIObject parent = object.getParent(); parent != null; parent = parent.getParent())
+			if (parent.hasAction(typeId) || parent.hasCaptureAction(typeId))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Calls a queue of broadcast actions with an event and releases it afterward.
+	 */
+	private void dispatchBroadcastEvent(OGLGUIAction[] queue, OGLGUIEvent event)
+	{
+		OGLGUIProfiler profiler = this.profiler;
+		long start = 0L;
+		if (profiler != null)
+		{
+			profiler.count(OGLGUIProfiler.COUNTER_EVENTS, 1);
+			start = profiler.begin(OGLGUIProfiler.PHASE_ACTIONS);
+		}
+		try {
+			for (int i = 0; i < queue.length; i++)
+				queue[i].call(event);
+		} finally {
+			if (profiler != null)
+				profiler.end(OGLGUIProfiler.PHASE_ACTIONS, start);
+			releaseEvent(event);
+		}
+	}
+	
 	/**
 	 * Calculates mouse coordinates for events.
 	 */
@@ -689,15 +1858,26 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	/**
 	 * Fires a GUI-specific event.
 	 * @param object the object central to the event.
+	 * @param type the event type id.
 	 */
-	void fireGUIEvent(OGLGUIObject object, String type)
+	void fireGUIEvent(OGLGUIObject object, int type)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
 		guiEvent.setOrigin(Origin.GUI);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
+	}
+	
+	/**
+	 * Fires a GUI-specific event.
+	 * @param object the object central to the event.
+	 * @param type the event type name.
+	 */
+	void fireGUIEvent(OGLGUIObject object, String type)
+	{
+		fireGUIEvent(object, OGLGUIObject.findEventTypeId(type));
 	}
 	
 	/**
@@ -776,62 +1956,106 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	/**
 	 * Fires a keyboard typed event.
 	 * @param object the object central to the event.
+	 * @param type the event type id.
 	 */
-	protected void fireKeyboardEvent(OGLGUIObject object, String type, int keyCode)
+	protected void fireKeyboardEvent(OGLGUIObject object, int type, int keyCode)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
 		guiEvent.setOrigin(Origin.INPUT);
 		guiEvent.setKeyModifier(currentKeyModifiers);
 		guiEvent.setKeyCode(keyCode);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
+	}
+	
+	/**
+	 * Fires a keyboard typed event.
+	 * @param object the object central to the event.
+	 * @param type the event type name.
+	 */
+	protected void fireKeyboardEvent(OGLGUIObject object, String type, int keyCode)
+	{
+		fireKeyboardEvent(object, OGLGUIObject.findEventTypeId(type), keyCode);
 	}
 	
 	/**
 	 * Fires a gamepad pressed event.
 	 * @param object the object central to the event.
+	 * @param type the event type id.
 	 */
-	protected void fireGamepadEvent(OGLGUIObject object, String type, int gamepadId, int buttonCode)
+	protected void fireGamepadEvent(OGLGUIObject object, int type, int gamepadId, int buttonCode)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
 		guiEvent.setOrigin(Origin.INPUT);
 		guiEvent.setGamepadButton(gamepadId, buttonCode);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
+	}
+	
+	/**
+	 * Fires a gamepad pressed event.
+	 * @param object the object central to the event.
+	 * @param type the event type name.
+	 */
+	protected void fireGamepadEvent(OGLGUIObject object, String type, int gamepadId, int buttonCode)
+	{
+		fireGamepadEvent(object, OGLGUIObject.findEventTypeId(type), gamepadId, buttonCode);
 	}
 	
 	/**
 	 * Fires a gamepad axis change event.
 	 * @param object the object central to the event.
+	 * @param type the event type id.
 	 */
-	protected void fireGamepadAxisEvent(OGLGUIObject object, String type, int gamepadId, int axisTypeId, float value)
+	protected void fireGamepadAxisEvent(OGLGUIObject object, int type, int gamepadId, int axisTypeId, float value)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
 		guiEvent.setOrigin(Origin.INPUT);
 		guiEvent.setGamepadAxes(gamepadId, axisTypeId, value);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
 	}
 	
 	/**
 	 * Fires a gamepad axis change event.
 	 * @param object the object central to the event.
+	 * @param type the event type name.
 	 */
-	protected void fireGamepadTapEvent(OGLGUIObject object, String type, int gamepadId, int axisTypeId, boolean positive)
+	protected void fireGamepadAxisEvent(OGLGUIObject object, String type, int gamepadId, int axisTypeId, float value)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		fireGamepadAxisEvent(object, OGLGUIObject.findEventTypeId(type), gamepadId, axisTypeId, value);
+	}
+	
+	/**
+	 * Fires a gamepad axis change event.
+	 * @param object the object central to the event.
+	 * @param type the event type id.
+	 */
+	protected void fireGamepadTapEvent(OGLGUIObject object, int type, int gamepadId, int axisTypeId, boolean positive)
+	{
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
 		guiEvent.setOrigin(Origin.INPUT);
 		guiEvent.setGamepadAxisTap(gamepadId, axisTypeId, positive);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
+	}
+	
+	/**
+	 * Fires a gamepad axis change event.
+	 * @param object the object central to the event.
+	 * @param type the event type name.
+	 */
+	protected void fireGamepadTapEvent(OGLGUIObject object, String type, int gamepadId, int axisTypeId, boolean positive)
+	{
+		fireGamepadTapEvent(object, OGLGUIObject.findEventTypeId(type), gamepadId, axisTypeId, positive);
 	}
 	
 	/**
@@ -842,19 +2066,17 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	protected boolean fireBroadcastKeyEvent(int keycode, boolean release)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
-		guiEvent.setGUI(this);
-		guiEvent.setObject(null);
-		guiEvent.setType(release ? OGLGUIObject.EVENT_KEY_RELEASE : OGLGUIObject.EVENT_KEY_PRESS);
-		guiEvent.setOrigin(Origin.INPUT);
-		guiEvent.setKeyModifier(currentKeyModifiers);
-		guiEvent.setKeyCode(keycode);
-		
-		Queue<OGLGUIAction> queue = keyBroadcastMap.get(GUIKeyStroke.createKey(currentKeyModifiers, keycode, release));
-		if (queue != null && !queue.isEmpty()) 
+		OGLGUIAction[] queue = keyBroadcastMap.get(GUIKeyStroke.pack(GUIKeyStroke.INPUT_KEY, currentKeyModifiers, keycode, release));
+		if (queue != null) 
 		{
-			for (OGLGUIAction action : queue)
-				action.call(guiEvent);
+			OGLGUIEvent guiEvent = acquireEvent();
+			guiEvent.setGUI(this);
+			guiEvent.setObject(null);
+			guiEvent.setType(release ? OGLGUIObject.EVENT_ID_KEY_RELEASE : OGLGUIObject.EVENT_ID_KEY_PRESS);
+			guiEvent.setOrigin(Origin.INPUT);
+			guiEvent.setKeyModifier(currentKeyModifiers);
+			guiEvent.setKeyCode(keycode);
+			dispatchBroadcastEvent(queue, guiEvent);
 			return true;
 		}
 		return false;
@@ -869,18 +2091,16 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	protected boolean fireBroadcastGamepadButtonEvent(int id, int button, boolean release)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
-		guiEvent.setGUI(this);
-		guiEvent.setObject(null);
-		guiEvent.setType(release ? OGLGUIObject.EVENT_GAMEPAD_RELEASE : OGLGUIObject.EVENT_GAMEPAD_PRESS);
-		guiEvent.setOrigin(Origin.INPUT);
-		guiEvent.setGamepadButton(id, button);
-		
-		Queue<OGLGUIAction> queue = keyBroadcastMap.get(GUIKeyStroke.createGamepad(currentKeyModifiers, button, release));
-		if (queue != null && !queue.isEmpty()) 
+		OGLGUIAction[] queue = keyBroadcastMap.get(GUIKeyStroke.pack(GUIKeyStroke.INPUT_GAMEPAD, currentKeyModifiers, button, release));
+		if (queue != null) 
 		{
-			for (OGLGUIAction action : queue)
-				action.call(guiEvent);
+			OGLGUIEvent guiEvent = acquireEvent();
+			guiEvent.setGUI(this);
+			guiEvent.setObject(null);
+			guiEvent.setType(release ? OGLGUIObject.EVENT_ID_GAMEPAD_RELEASE : OGLGUIObject.EVENT_ID_GAMEPAD_PRESS);
+			guiEvent.setOrigin(Origin.INPUT);
+			guiEvent.setGamepadButton(id, button);
+			dispatchBroadcastEvent(queue, guiEvent);
 			return true;
 		}
 		return false;
@@ -895,18 +2115,16 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	protected boolean fireBroadcastGamepadTapEvent(int id, int axisId, boolean positive)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
-		guiEvent.setGUI(this);
-		guiEvent.setObject(null);
-		guiEvent.setType(OGLGUIObject.EVENT_GAMEPAD_TAP);
-		guiEvent.setOrigin(Origin.INPUT);
-		guiEvent.setGamepadAxisTap(id, axisId, positive);
-		
-		Queue<OGLGUIAction> queue = keyBroadcastMap.get(GUIKeyStroke.createGamepadTap(axisId, positive));
-		if (queue != null && !queue.isEmpty()) 
+		OGLGUIAction[] queue = keyBroadcastMap.get(GUIKeyStroke.pack(GUIKeyStroke.INPUT_GAMEPAD_AXIS, 0, axisId, positive));
+		if (queue != null) 
 		{
-			for (OGLGUIAction action : queue)
-				action.call(guiEvent);
+			OGLGUIEvent guiEvent = acquireEvent();
+			guiEvent.setGUI(this);
+			guiEvent.setObject(null);
+			guiEvent.setType(OGLGUIObject.EVENT_ID_GAMEPAD_TAP);
+			guiEvent.setOrigin(Origin.INPUT);
+			guiEvent.setGamepadAxisTap(id, axisId, positive);
+			dispatchBroadcastEvent(queue, guiEvent);
 			return true;
 		}
 		return false;
@@ -915,10 +2133,11 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	/**
 	 * Fires a mouse pressed event.
 	 * @param object the object central to the event.
+	 * @param type the event type id.
 	 */
-	protected void fireMouseEvent(OGLGUIObject object, String type)
+	protected void fireMouseEvent(OGLGUIObject object, int type)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
@@ -934,16 +2153,27 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 			calculatedMouseCoordinates[MOUSE_MOVEX], 
 			calculatedMouseCoordinates[MOUSE_MOVEY]
 			);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
 	}
 	
 	/**
 	 * Fires a mouse pressed event.
 	 * @param object the object central to the event.
+	 * @param type the event type name.
 	 */
-	protected void fireMouseEvent(OGLGUIObject object, String type, int button)
+	protected void fireMouseEvent(OGLGUIObject object, String type)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		fireMouseEvent(object, OGLGUIObject.findEventTypeId(type));
+	}
+	
+	/**
+	 * Fires a mouse pressed event.
+	 * @param object the object central to the event.
+	 * @param type the event type id.
+	 */
+	protected void fireMouseEvent(OGLGUIObject object, int type, int button)
+	{
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
 		guiEvent.setType(type);
@@ -960,7 +2190,17 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 			calculatedMouseCoordinates[MOUSE_MOVEX], 
 			calculatedMouseCoordinates[MOUSE_MOVEY]
 			);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
+	}
+	
+	/**
+	 * Fires a mouse pressed event.
+	 * @param object the object central to the event.
+	 * @param type the event type name.
+	 */
+	protected void fireMouseEvent(OGLGUIObject object, String type, int button)
+	{
+		fireMouseEvent(object, OGLGUIObject.findEventTypeId(type), button);
 	}
 	
 	/**
@@ -969,66 +2209,201 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 	 */
 	protected void fireMouseWheelEvent(OGLGUIObject object, int units)
 	{
-		OGLGUIEvent guiEvent = new OGLGUIEvent();
+		OGLGUIEvent guiEvent = acquireEvent();
 		guiEvent.setGUI(this);
 		guiEvent.setObject(object);
+		guiEvent.setType(OGLGUIObject.EVENT_ID_MOUSE_WHEEL);
 		guiEvent.setOrigin(Origin.INPUT);
 		guiEvent.setKeyModifier(currentKeyModifiers);
 		guiEvent.setMouseWheelUnits(units);
-		object.callEvent(guiEvent);
+		dispatchEvent(object, guiEvent);
 	}
 
 	@Override
 	public synchronized void display(OGLGraphics g)
 	{
-		if (updateAnimationsDuringDisplay)
-			updateAnimations(g.currentTimeStepMillis());
-		
-		super.display(g);
+		runFrame(g, g.currentTimeStepMillis(), null);
 	}
 
 	/**
-	 * Updates objects affected by mouse movement.
+	 * Runs a frame without rendering anything, for driving this GUI without a graphics context.
+	 * Input is handled, animations are updated, and the render sequence and render orders are
+	 * updated as though the GUI was displayed, but nothing is added to the render list.
+	 * @param millis the amount of milliseconds that passed since the last frame.
+	 * @param out the list to add the objects that would have been rendered to, in order. Can be null.
+	 * @return the amount of render nodes that would have been created.
+	 * @see OGLGUIHeadlessDriver
 	 */
-	protected void updateObjectEvents()
+	synchronized int displayHeadless(float millis, List<OGLGUIObject> out)
 	{
-		OGLGUIObject finalObject = null;
-		
-		for (OGLGUIObject object : sceneObjects)
-		{
-			if (!object.isVisible())
-				continue;
+		return runFrame(null, millis, out);
+	}
 
-			if (!object.isEnabled())
-				continue;
+	/**
+	 * Handles queued input, updates animations, and renders (or records) the GUI.
+	 * @param g the graphics context, or null if headless.
+	 * @param millis the time since the last frame.
+	 * @param headlessOut if headless, the list to add rendered objects to.
+	 * @return if headless, the amount of render nodes that would have been created, else 0.
+	 */
+	private int runFrame(OGLGraphics g, float millis, List<OGLGUIObject> headlessOut)
+	{
+		OGLGUIProfiler profiler = this.profiler;
+		if (profiler == null)
+		{
+			drainInputQueue();
+			flushCoalescedInput();
 			
-			if (object.isInert())
-				continue;
+			if (updateAnimationsDuringDisplay)
+				updateAnimations(millis);
+			
+			if (g != null)
+			{
+				super.display(g);
+				return 0;
+			}
+			return recreateRenderList(null, headlessOut);
+		}
 
-			if (object.getRenderOrder() < 0)
-				continue;
+		long frame = profiler.begin(OGLGUIProfiler.PHASE_FRAME);
+		try {
+			long start = profiler.begin(OGLGUIProfiler.PHASE_INPUT);
+			try {
+				drainInputQueue();
+				flushCoalescedInput();
+			} finally {
+				profiler.end(OGLGUIProfiler.PHASE_INPUT, start);
+			}
 			
-			if (!doMouseTest(object))
-				continue;
+			if (updateAnimationsDuringDisplay)
+			{
+				start = profiler.begin(OGLGUIProfiler.PHASE_ANIMATION);
+				try {
+					updateAnimations(millis);
+				} finally {
+					profiler.end(OGLGUIProfiler.PHASE_ANIMATION, start);
+				}
+			}
 			
-			if (finalObject == null)
-				finalObject = object;
-			else if (object.getRenderOrder() >= finalObject.getRenderOrder())
-				finalObject = object;
+			if (g != null)
+			{
+				super.display(g);
+				return 0;
+			}
 			
+			start = profiler.begin(OGLGUIProfiler.PHASE_RENDER_LIST);
+			try {
+				return recreateRenderList(null, headlessOut);
+			} finally {
+				profiler.end(OGLGUIProfiler.PHASE_RENDER_LIST, start);
+			}
+		} finally {
+			profiler.end(OGLGUIProfiler.PHASE_FRAME, frame);
+			profiler.setCount(OGLGUIProfiler.COUNTER_OBJECTS, renderSequence.size());
+			profiler.endFrame();
+		}
+	}
+
+	/**
+	 * Sets the size of the canvas that this GUI is drawn on, for mouse coordinate 
+	 * calculation when there is no canvas.
+	 * @param width the canvas width.
+	 * @param height the canvas height.
+	 * @see OGLGUIHeadlessDriver
+	 */
+	synchronized void setHeadlessCanvasSize(int width, int height)
+	{
+		canvasWidth = width;
+		canvasHeight = height;
+	}
+
+	/**
+	 * Updates objects affected by mouse movement.
+	 */
+	protected void updateObjectEvents()
+	{
+		OGLGUIProfiler profiler = this.profiler;
+		long start = profiler != null ? profiler.begin(OGLGUIProfiler.PHASE_HIT_TEST) : 0L;
+		OGLGUIObject finalObject = null;
+		
+		try {
+			finalObject = findMouseObject();
+		} finally {
+			if (profiler != null)
+				profiler.end(OGLGUIProfiler.PHASE_HIT_TEST, start);
 		}
 		
 		if (finalObject != objectMouseOver && objectMouseOver != null)
-			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_MOUSE_LEAVE);
+			fireMouseEvent(objectMouseOver, OGLGUIObject.EVENT_ID_MOUSE_LEAVE);
 	
 		if (finalObject != objectMouseOver && finalObject != null)
-			fireMouseEvent(finalObject, OGLGUIObject.EVENT_MOUSE_OVER);
+			fireMouseEvent(finalObject, OGLGUIObject.EVENT_ID_MOUSE_OVER);
 	
 		objectMouseOver = finalObject;
 	}
 
+	/**
+	 * Finds the topmost object under the mouse cursor.
+	 * @return the object found, or null if none.
+	 */
+	private OGLGUIObject findMouseObject()
+	{
+		OGLGUIObject finalObject = null;
+		
+		if (hitIndexEnabled)
+		{
+			synchronized (hitIndex)
+			{
+				List<OGLGUIObject> cell = hitIndex.getCell(getMousePositionX(), getMousePositionY());
+				if (cell != null) for (int i = 0; i < cell.size(); i++)
+					finalObject = pickMouseObject(cell.getByIndex(i), finalObject);
+				List<OGLGUIObject> large = hitIndex.getLargeObjects();
+				for (int i = 0; i < large.size(); i++)
+					finalObject = pickMouseObject(large.getByIndex(i), finalObject);
+			}
+		}
+		else for (OGLGUIObject object : sceneObjects)
+			finalObject = pickMouseObject(object, finalObject);
+		
+		return finalObject;
+	}
+
+	/**
+	 * Tests an object for being under the mouse cursor, and returns the topmost
+	 * object between it and the current best candidate.
+	 * @param object the object to test.
+	 * @param finalObject the current candidate. Can be null.
+	 * @return the new candidate.
+	 */
+	private OGLGUIObject pickMouseObject(OGLGUIObject object, OGLGUIObject finalObject)
+	{
+		if (!object.isVisible())
+			return finalObject;
+
+		if (!object.isEnabled())
+			return finalObject;
+		
+		if (object.isInert())
+			return finalObject;
+
+		if (object.getRenderOrder() < 0)
+			return finalObject;
+		
+		if (!doMouseTest(object))
+			return finalObject;
+		
+		if (finalObject == null)
+			return object;
+		else if (object.getRenderOrder() >= finalObject.getRenderOrder())
+			return object;
+		
+		return finalObject;
+	}
+
 	/**
 	 * Checks if the mouse cursor is inside a particular object (rendered area).
+	 * If the hit index is enabled, only objects whose absolute bounds are near the
+	 * cursor are tested, so overriding methods should not accept points outside of them.
 	 * @param object the object to test.
 	 * @return <code>true</code> if inside, <code>false</code> if not.
 	 */
@@ -1053,34 +2428,101 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 
 	/**
 	 * Creates the render list entries for an object.
+	 * The GUI's object trees are only walked again if they changed since the last render.
+	 * Render order is the object's position in the render sequence, and is only written 
+	 * if it changed.
 	 */
 	protected void displayRecreateRenderListForObjects(OGLGraphics g)
 	{
-		renderCount = 0;
-		displayRecreateRenderListForObjectsRecurse(g, rootObjects);
+		OGLGUIProfiler profiler = this.profiler;
+		long start = profiler != null ? profiler.begin(OGLGUIProfiler.PHASE_RENDER_LIST) : 0L;
+		try {
+			recreateRenderList(g, null);
+		} finally {
+			if (profiler != null)
+				profiler.end(OGLGUIProfiler.PHASE_RENDER_LIST, start);
+		}
 	}
 	
-	private void displayRecreateRenderListForObjectsRecurse(OGLGraphics g, List<OGLGUIObject> objects)
+	/**
+	 * Creates the render list entries from the render sequence.
+	 * @param g the graphics context. If null, no entries are created (headless).
+	 * @param headlessOut if headless, the list to add the objects that would be rendered to. Can be null.
+	 * @return the amount of render list entries created (or that would have been).
+	 */
+	private int recreateRenderList(OGLGraphics g, List<OGLGUIObject> headlessOut)
 	{
-		for (OGLGUIObject obj : objects)
+		int nodes = 0;
+		if (renderSequenceDirty)
+			rebuildRenderSequence();
+		
+		int i = 0;
+		int size = renderSequence.size();
+		while (i < size)
 		{
+			OGLGUIObject obj = renderSequence.getByIndex(i);
 			if (excludeObjectFromVisibility(obj))
 			{
-				obj.setRenderOrder(-1);
+				// skip subtree.
+				int end = renderSequenceEnd[i];
+				for (; i < end; i++)
+				{
+					obj = renderSequence.getByIndex(i);
+					if (obj.getRenderOrder() != -1)
+						obj.setRenderOrder(-1);
+				}
 				continue;
 			}
 			
 			OGLSkin group = obj.getSkin();
-			if (group != null) 
+			if (g == null)
+			{
+				if (headlessOut != null)
+					headlessOut.add(obj);
+				nodes += group != null ? group.size() : 1;
+			}
+			else if (group != null) 
 			{
 				for (int p = 0; p < group.size(); p++)
 					renderListAddNode(g, loader, obj, renderListObjects, group.get(p), 0, 0);
+				nodes += group.size();
 			}
 			else
+			{
 				renderListAddNode(g, loader, obj, renderListObjects, DEFAULT_STEP, 0, 0);
-			obj.setRenderOrder(renderCount++);
-			displayRecreateRenderListForObjectsRecurse(g, obj.getChildren());
+				nodes++;
+			}
+			
+			if (obj.getRenderOrder() != i)
+				obj.setRenderOrder(i);
+			i++;
 		}
+		return nodes;
+	}
+	
+	/**
+	 * Rebuilds the flattened render sequence from the root objects.
+	 */
+	private void rebuildRenderSequence()
+	{
+		renderSequenceDirty = false;
+		renderSequence.clear();
+		for (int i = 0; i < rootObjects.size(); i++)
+			rebuildRenderSequenceRecurse(rootObjects.getByIndex(i));
+	}
+	
+	private void rebuildRenderSequenceRecurse(OGLGUIObject obj)
+	{
+		int index = renderSequence.size();
+		renderSequence.add(obj);
+		if (index >= renderSequenceEnd.length)
+			renderSequenceEnd = Arrays.copyOf(renderSequenceEnd, renderSequenceEnd.length * 2);
+		
+		List<OGLGUIObject> children = obj.getChildren();
+		for (int i = 0; i < children.size(); i++)
+			rebuildRenderSequenceRecurse(children.getByIndex(i));
+		
+		renderSequenceEnd[index] = renderSequence.size();
 	}
 	
 	@Override
@@ -1099,4 +2541,53 @@ public class OGLGUI extends OGLScene2DNode<OGLGUIObject>
 			toStringRecurse(tabString + "\t", sb, child);
 	}
 
+	/**
+	 * A set of gamepad axis changes, with the latest value per axis.
+	 */
+	private static final class AxisChanges
+	{
+		/** Gamepad ids. */
+		int[] gamepadIds;
+		/** Axis ids. */
+		int[] axisIds;
+		/** Values. */
+		float[] values;
+		/** Amount of changes. */
+		int count;
+		
+		AxisChanges()
+		{
+			gamepadIds = new int[4];
+			axisIds = new int[4];
+			values = new float[4];
+			count = 0;
+		}
+		
+		/**
+		 * Sets the value of an axis, replacing its previous value, if any.
+		 */
+		void set(int gamepadId, int axisId, float value)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (gamepadIds[i] == gamepadId && axisIds[i] == axisId)
+				{
+					values[i] = value;
+					return;
+				}
+			}
+			
+			if (count == axisIds.length)
+			{
+				gamepadIds = Arrays.copyOf(gamepadIds, count * 2);
+				axisIds = Arrays.copyOf(axisIds, count * 2);
+				values = Arrays.copyOf(values, count * 2);
+			}
+			gamepadIds[count] = gamepadId;
+			axisIds[count] = axisId;
+			values[count] = value;
+			count++;
+		}
+	}
+
 }
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of object ids (see {@link OGLGUIObjectIds}).
+ * Small sets (up to {@value #SMALL_LIMIT} ids) are kept as a sorted array of ids.
+ * Bigger sets are bits stored in blocks of {@value #BLOCK_BITS}, and blocks with no bits set
+ * are not stored, so sets of large ids stay small.
+ * Set operations on bit blocks combine whole words at a time, and skip missing blocks.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIBitSet
+{
+	/** Most ids kept in a sorted array before switching to bit blocks. */
+	static final int SMALL_LIMIT = 32;
+	/** Bits per block. */
+	static final int BLOCK_BITS = 512;
+	/** Words per block. */
+	private static final int BLOCK_WORDS = BLOCK_BITS / 64;
+	/** Shift from id to block index. */
+	private static final int BLOCK_SHIFT = 9;
+
+	/** No ids. */
+	private static final int[] NO_IDS = new int[0];
+
+	/** Sorted ids, while this set is small. */
+	private int[] ids;
+	/** Amount of ids in the sorted array. */
+	private int idCount;
+	/** Blocks of words, or null while this set is small. Null blocks have no bits set. */
+	private long[][] blocks;
+
+	OGLGUIBitSet()
+	{
+		ids = NO_IDS;
+		idCount = 0;
+		blocks = null;
+	}
+
+	// Creates a set around blocks.
+	private OGLGUIBitSet(long[][] blocks)
+	{
+		this.ids = NO_IDS;
+		this.idCount = 0;
+		this.blocks = blocks;
+	}
+
+	// Creates a set around sorted ids.
+	private OGLGUIBitSet(int[] ids, int idCount)
+	{
+		this.ids = ids;
+		this.idCount = idCount;
+		this.blocks = null;
+	}
+
+	/**
+	 * Returns true if an id is in this set.
+	 */
+	boolean get(int id)
+	{
+		if (blocks == null)
+			return Arrays.binarySearch(ids, 0, idCount, id) >= 0;
+
+		int b = id >>> BLOCK_SHIFT;
+		if (b >= blocks.length || blocks[b] == null)
+			return false;
+		return (blocks[b][(id >>> 6) & (BLOCK_WORDS - 1)] & (1L << id)) != 0L;
+	}
+
+	/**
+	 * Adds an id to this set.
+	 */
+	void set(int id)
+	{
+		if (blocks == null)
+		{
+			int i = Arrays.binarySearch(ids, 0, idCount, id);
+			if (i >= 0)
+				return;
+			if (idCount < SMALL_LIMIT)
+			{
+				i = -(i + 1);
+				if (idCount == ids.length)
+					ids = Arrays.copyOf(ids, Math.min(Math.max(4, idCount * 2), SMALL_LIMIT));
+				System.arraycopy(ids, i, ids, i + 1, idCount - i);
+				ids[i] = id;
+				idCount++;
+				return;
+			}
+			blocks = getBlocks();
+			ids = NO_IDS;
+			idCount = 0;
+		}
+
+		int b = id >>> BLOCK_SHIFT;
+		if (b >= blocks.length)
+			blocks = Arrays.copyOf(blocks, Math.max(b + 1, blocks.length * 2));
+		if (blocks[b] == null)
+			blocks[b] = new long[BLOCK_WORDS];
+		blocks[b][(id >>> 6) & (BLOCK_WORDS - 1)] |= 1L << id;
+	}
+
+	// Returns this set's blocks, making them from the sorted ids if this set is small.
+	private long[][] getBlocks()
+	{
+		if (blocks != null)
+			return blocks;
+
+		long[][] out = new long[idCount > 0 ? (ids[idCount - 1] >>> BLOCK_SHIFT) + 1 : 0][];
+		for (int i = 0; i < idCount; i++)
+		{
+			int id = ids[i];
+			int b = id >>> BLOCK_SHIFT;
+			if (out[b] == null)
+				out[b] = new long[BLOCK_WORDS];
+			out[b][(id >>> 6) & (BLOCK_WORDS - 1)] |= 1L << id;
+		}
+		return out;
+	}
+
+	/** Operation: a AND b. */
+	static final int AND = 0;
+	/** Operation: a OR b. */
+	static final int OR = 1;
+	/** Operation: a AND NOT b. */
+	static final int AND_NOT = 2;
+	/** Operation: a XOR b. */
+	static final int XOR = 3;
+
+	/**
+	 * Combines two sets into a new set.
+	 * @param a the first set.
+	 * @param b the second set.
+	 * @param operation the operation ({@link #AND}, {@link #OR}, {@link #AND_NOT}, {@link #XOR}).
+	 * @return a new set.
+	 */
+	static OGLGUIBitSet combine(OGLGUIBitSet a, OGLGUIBitSet b, int operation)
+	{
+		if (a.blocks == null && b.blocks == null)
+			return combineSmall(a, b, operation);
+		return combineBlocks(a.getBlocks(), b.getBlocks(), operation);
+	}
+
+	// Combines two small sets by merging their sorted ids.
+	private static OGLGUIBitSet combineSmall(OGLGUIBitSet a, OGLGUIBitSet b, int operation)
+	{
+		int[] out = new int[a.idCount + b.idCount];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.idCount || j < b.idCount)
+		{
+			int ia = i < a.idCount ? a.ids[i] : Integer.MAX_VALUE;
+			int ib = j < b.idCount ? b.ids[j] : Integer.MAX_VALUE;
+			boolean inA = ia <= ib;
+			boolean inB = ib <= ia;
+			int id = inA ? ia : ib;
+
+			boolean keep;
+			switch (operation)
+			{
+				case AND:
+					keep = inA && inB;
+					break;
+				case OR:
+					keep = true;
+					break;
+				case AND_NOT:
+					keep = inA && !inB;
+					break;
+				default:
+					keep = inA != inB;
+					break;
+			}
+			if (keep)
+				out[count++] = id;
+			if (inA)
+				i++;
+			if (inB)
+				j++;
+		}
+
+		OGLGUIBitSet set = new OGLGUIBitSet(out, count);
+		if (count > SMALL_LIMIT)
+			set = new OGLGUIBitSet(set.getBlocks());
+		return set;
+	}
+
+	// Combines two sets of blocks.
+	private static OGLGUIBitSet combineBlocks(long[][] a, long[][] b, int operation)
+	{
+		int length;
+		switch (operation)
+		{
+			case AND:
+				length = Math.min(a.length, b.length);
+				break;
+			case AND_NOT:
+				length = a.length;
+				break;
+			default:
+				length = Math.max(a.length, b.length);
+				break;
+		}
+
+		long[][] out = new long[length][];
+		for (int i = 0; i < length; i++)
+		{
+			long[] ba = i < a.length ? a[i] : null;
+			long[] bb = i < b.length ? b[i] : null;
+			if (ba == null && bb == null)
+				continue;
+
+			switch (operation)
+			{
+				case AND:
+					if (ba == null || bb == null)
+						continue;
+					break;
+				case AND_NOT:
+					if (ba == null)
+						continue;
+					if (bb == null)
+					{
+						out[i] = ba.clone();
+						continue;
+					}
+					break;
+				default:
+					if (ba == null || bb == null)
+					{
+						out[i] = (ba != null ? ba : bb).clone();
+						continue;
+					}
+					break;
+			}
+
+			long[] block = new long[BLOCK_WORDS];
+			long any = 0L;
+			for (int w = 0; w < BLOCK_WORDS; w++)
+			{
+				long word;
+				switch (operation)
+				{
+					case AND:
+						word = ba[w] & bb[w];
+						break;
+					case OR:
+						word = ba[w] | bb[w];
+						break;
+					case AND_NOT:
+						word = ba[w] & ~bb[w];
+						break;
+					default:
+						word = ba[w] ^ bb[w];
+						break;
+				}
+				block[w] = word;
+				any |= word;
+			}
+			if (any != 0L)
+				out[i] = block;
+		}
+		return new OGLGUIBitSet(out);
+	}
+
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+
+import com.blackrook.ogl.gui.input.GUIKeyStroke;
+
+/**
+ * An open-addressing map of packed keystrokes (see {@link GUIKeyStroke#getPackedKey()})
+ * to the broadcast actions bound to them.
+ * Action arrays are copy-on-write, so an array returned by {@link #get(long)} is never changed.
+ * <p>Keys are never removed from the table once added (only their actions are),
+ * since the set of bound keystrokes is small.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIBroadcastMap
+{
+	/** Table keys. */
+	private long[] keys;
+	/** Table values. */
+	private OGLGUIAction[][] values;
+	/** Which slots are used. */
+	private boolean[] used;
+	/** Amount of used slots. */
+	private int count;
+
+	OGLGUIBroadcastMap()
+	{
+		clear();
+	}
+
+	/**
+	 * Returns the actions bound to a keystroke, in the order they were bound.
+	 * @param key the packed keystroke.
+	 * @return the actions, or null if no actions.
+	 */
+	OGLGUIAction[] get(long key)
+	{
+		int slot = find(key);
+		return slot < 0 ? null : values[slot];
+	}
+
+	/**
+	 * Binds an action to a keystroke, after the actions already bound to it.
+	 * @param key the packed keystroke.
+	 * @param action the action to add.
+	 */
+	void add(long key, OGLGUIAction action)
+	{
+		int slot = find(key);
+		if (slot < 0)
+		{
+			if ((count + 1) * 2 > keys.length)
+				expand();
+			slot = insert(key);
+			count++;
+		}
+
+		OGLGUIAction[] queue = values[slot];
+		if (queue == null)
+			queue = new OGLGUIAction[]{action};
+		else
+		{
+			queue = Arrays.copyOf(queue, queue.length + 1);
+			queue[queue.length - 1] = action;
+		}
+		values[slot] = queue;
+	}
+
+	/**
+	 * Unbinds an action from a keystroke.
+	 * @param key the packed keystroke.
+	 * @param action the action to remove.
+	 * @return true if removed, false if not bound.
+	 */
+	boolean remove(long key, OGLGUIAction action)
+	{
+		int slot = find(key);
+		if (slot < 0 || values[slot] == null)
+			return false;
+
+		OGLGUIAction[] queue = values[slot];
+		int index = -1;
+		for (int i = 0; i < queue.length && index < 0; i++)
+			if (queue[i] == action)
+				index = i;
+		if (index < 0)
+			return false;
+
+		OGLGUIAction[] newQueue = null;
+		if (queue.length > 1)
+		{
+			newQueue = new OGLGUIAction[queue.length - 1];
+			System.arraycopy(queue, 0, newQueue, 0, index);
+			System.arraycopy(queue, index + 1, newQueue, index, queue.length - index - 1);
+		}
+		values[slot] = newQueue;
+		return true;
+	}
+
+	/**
+	 * Unbinds all actions from a keystroke.
+	 * @param key the packed keystroke.
+	 * @return true if any were removed, false if none bound.
+	 */
+	boolean removeAll(long key)
+	{
+		int slot = find(key);
+		if (slot < 0 || values[slot] == null)
+			return false;
+		values[slot] = null;
+		return true;
+	}
+
+	/**
+	 * Removes all keystrokes and actions.
+	 */
+	void clear()
+	{
+		keys = new long[16];
+		values = new OGLGUIAction[16][];
+		used = new boolean[16];
+		count = 0;
+	}
+
+	// Gets a table slot index for a key.
+	private static int hashKey(long key, int mask)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	// Finds the slot for a key, or -1 if not in the table.
+	private int find(long key)
+	{
+		int mask = keys.length - 1;
+		int slot = hashKey(key, mask);
+		while (used[slot])
+		{
+			if (keys[slot] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// Claims a free slot for a key (no checks).
+	private int insert(long key)
+	{
+		int mask = keys.length - 1;
+		int slot = hashKey(key, mask);
+		while (used[slot])
+			slot = (slot + 1) & mask;
+		keys[slot] = key;
+		used[slot] = true;
+		return slot;
+	}
+
+	// Doubles the table.
+	private void expand()
+	{
+		long[] oldKeys = keys;
+		OGLGUIAction[][] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new long[oldKeys.length * 2];
+		values = new OGLGUIAction[oldValues.length * 2][];
+		used = new boolean[oldUsed.length * 2];
+		for (int i = 0; i < oldUsed.length; i++)
+		{
+			if (oldUsed[i])
+				values[insert(oldKeys[i])] = oldValues[i];
+		}
+	}
+
+}
@@ -18,6 +18,10 @@ import com.blackrook.ogl.input.OGLInputConstants;
  * Be warned that event objects may be pooled - this should only be used
  * for feedback purposes. Do not store references to these objects, 
  * as they be may be reused by the GUI system. They are also NOT THREAD-SAFE.
+ * <p>If the GUI has event pooling enabled (see {@link OGLGUI#setEventPoolingEnabled(boolean)}),
+ * an event is only valid until the action it was passed to returns, after which its
+ * fields are cleared and it is reused. Actions that need to keep an event must
+ * keep a {@link #copy()} of it instead.
  * @author Matthew Tropiano
  */
 public final class OGLGUIEvent implements OGLInputConstants
@@ -37,6 +41,19 @@ public final class OGLGUIEvent implements OGLInputConstants
 		GUI,
 	}
 	
+	/**
+	 * Propagation phase of event.
+	 */
+	public static enum Phase
+	{
+		/** Event is being passed to the capture actions of the target's ancestors. */
+		CAPTURE,
+		/** Event is being passed to the actions of its target. */
+		TARGET,
+		/** Event is being passed to the actions of the target's ancestors. */
+		BUBBLE;
+	}
+	
 	/**
 	 * Input type on event.
 	 */
@@ -60,10 +77,18 @@ public final class OGLGUIEvent implements OGLInputConstants
 	
 	/** GUI system node that this event occurred on. */
 	private OGLGUI gui;
-	/** Object that this event occurred on. */
+	/** Object whose actions are being called. */
 	private OGLGUIObject object;
+	/** Object that this event occurred on. */
+	private OGLGUIObject target;
+	/** Current propagation phase. */
+	private Phase phase;
+	/** If true, this event is not passed on to any more objects. */
+	private boolean propagationStopped;
 	/** Event type name. */
 	private String type;
+	/** Event type id. */
+	private int typeId;
 	/** Event API origin. */
 	private Origin origin;
 	/** Input type for event. */
@@ -90,6 +115,8 @@ public final class OGLGUIEvent implements OGLInputConstants
 	private float farg6;
 	/** Float argument 7. */
 	private float farg7;
+	/** Is this event owned by a pool? */
+	private boolean pooled;
 	
 	/** Creates a completely new event. */
 	OGLGUIEvent()
@@ -102,8 +129,14 @@ public final class OGLGUIEvent implements OGLInputConstants
 	{
 		gui = null;
 		object = null;
+		target = null;
+		phase = Phase.TARGET;
+		propagationStopped = false;
 		type = OGLGUIObject.EVENT_UNKNOWN;
+		typeId = OGLGUIObject.EVENT_ID_UNKNOWN;
 		origin = Origin.UNKNOWN;
+		inputType = InputType.NONE;
+		imod = 0;
 		iarg0 = -1;
 		iarg1 = -1;
 		farg0 = 0f;
@@ -116,6 +149,37 @@ public final class OGLGUIEvent implements OGLInputConstants
 		farg7 = 0f;
 	}
 	
+	/**
+	 * Creates a copy of this event that is never reused by the GUI system,
+	 * and is therefore safe to keep after the action it was passed to returns.
+	 * @return a new event with the same contents as this one.
+	 */
+	public OGLGUIEvent copy()
+	{
+		OGLGUIEvent out = new OGLGUIEvent();
+		out.gui = gui;
+		out.object = object;
+		out.target = target;
+		out.phase = phase;
+		out.propagationStopped = propagationStopped;
+		out.type = type;
+		out.typeId = typeId;
+		out.origin = origin;
+		out.inputType = inputType;
+		out.imod = imod;
+		out.iarg0 = iarg0;
+		out.iarg1 = iarg1;
+		out.farg0 = farg0;
+		out.farg1 = farg1;
+		out.farg2 = farg2;
+		out.farg3 = farg3;
+		out.farg4 = farg4;
+		out.farg5 = farg5;
+		out.farg6 = farg6;
+		out.farg7 = farg7;
+		return out;
+	}
+	
 	/**
 	 * Returns a reference to the GUI node that this event happened on. 
 	 */
@@ -125,7 +189,9 @@ public final class OGLGUIEvent implements OGLInputConstants
 	}
 	
 	/** 
-	 * Returns a reference to the object that is the source of this event.
+	 * Returns a reference to the object whose actions are being called with this event.
+	 * This is the same as {@link #getTarget()}, unless the event is being propagated
+	 * to the target's ancestors.
 	 * May be null if this event was not fired by an object. 
 	 */
 	public OGLGUIObject getObject()
@@ -133,6 +199,43 @@ public final class OGLGUIEvent implements OGLInputConstants
 		return object;
 	}
 	
+	/** 
+	 * Returns a reference to the object that is the source of this event.
+	 * May be null if this event was not fired by an object. 
+	 * @see OGLGUI#setEventPropagationEnabled(boolean)
+	 */
+	public OGLGUIObject getTarget()
+	{
+		return target;
+	}
+	
+	/**
+	 * Returns the propagation phase of this event.
+	 * If event propagation is not enabled, this is always {@link Phase#TARGET}.
+	 * @see OGLGUI#setEventPropagationEnabled(boolean)
+	 */
+	public Phase getPhase()
+	{
+		return phase;
+	}
+	
+	/**
+	 * Stops this event from being passed on to other objects once the
+	 * actions on the current object are called.
+	 */
+	public void stopPropagation()
+	{
+		propagationStopped = true;
+	}
+	
+	/**
+	 * Returns true if {@link #stopPropagation()} was called on this event.
+	 */
+	public boolean isPropagationStopped()
+	{
+		return propagationStopped;
+	}
+	
 	/**
 	 * Returns the type of event that this is.
 	 */
@@ -141,6 +244,15 @@ public final class OGLGUIEvent implements OGLInputConstants
 		return type;
 	}
 	
+	/**
+	 * Returns the id of the type of event that this is, or -1 if no type.
+	 * @see OGLGUIObject#getEventTypeId(String)
+	 */
+	public int getTypeId()
+	{
+		return typeId;
+	}
+	
 	/**
 	 * Returns what system originated this event.
 	 */
@@ -404,6 +516,18 @@ public final class OGLGUIEvent implements OGLInputConstants
 		return farg0 > 0f;
 	}
 	
+	/** Is this event owned by a pool? */
+	boolean isPooled()
+	{
+		return pooled;
+	}
+	
+	/** Sets if this event is owned by a pool. */
+	void setPooled(boolean pooled)
+	{
+		this.pooled = pooled;
+	}
+	
 	/** Sets the GUI reference. */
 	void setGUI(OGLGUI gui)
 	{
@@ -416,10 +540,30 @@ public final class OGLGUIEvent implements OGLInputConstants
 		this.object = object;
 	}
 	
+	/** Sets the target object reference. */
+	void setTarget(OGLGUIObject target)
+	{
+		this.target = target;
+	}
+	
+	/** Sets the propagation phase. */
+	void setPhase(Phase phase)
+	{
+		this.phase = phase;
+	}
+	
 	/** Sets the type. */
 	void setType(String type)
 	{
 		this.type = type;
+		this.typeId = OGLGUIObject.findEventTypeId(type);
+	}
+	
+	/** Sets the type by id. */
+	void setType(int typeId)
+	{
+		this.type = OGLGUIObject.getEventTypeName(typeId);
+		this.typeId = typeId;
 	}
 	
 	/** Sets the origin. */
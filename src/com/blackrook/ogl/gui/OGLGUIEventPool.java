@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+
+/**
+ * A per-thread stack of reusable {@link OGLGUIEvent}s.
+ * Events are acquired when an event is fired and released once all of its
+ * actions have been called, so events fired from inside actions get their own instance.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIEventPool
+{
+	/** The pool for each thread. */
+	private static final ThreadLocal<OGLGUIEventPool> LOCAL_POOL = new ThreadLocal<OGLGUIEventPool>()
+	{
+		@Override
+		protected OGLGUIEventPool initialValue()
+		{
+			return new OGLGUIEventPool();
+		}
+	};
+
+	/** Event stack. */
+	private OGLGUIEvent[] events;
+	/** Current stack depth. */
+	private int depth;
+
+	private OGLGUIEventPool()
+	{
+		events = new OGLGUIEvent[4];
+		depth = 0;
+	}
+
+	/**
+	 * Acquires a reset event from the current thread's pool.
+	 */
+	static OGLGUIEvent acquire()
+	{
+		return LOCAL_POOL.get().push();
+	}
+
+	/**
+	 * Returns an event to the current thread's pool.
+	 * The event is reset, and must not be used afterward.
+	 * Events not created by a pool are ignored.
+	 * @param event the event to release.
+	 */
+	static void release(OGLGUIEvent event)
+	{
+		if (event.isPooled())
+			LOCAL_POOL.get().pop(event);
+	}
+
+	// Gets the next free event.
+	private OGLGUIEvent push()
+	{
+		if (depth == events.length)
+			events = Arrays.copyOf(events, events.length * 2);
+
+		OGLGUIEvent out = events[depth];
+		if (out == null)
+		{
+			out = new OGLGUIEvent();
+			out.setPooled(true);
+			events[depth] = out;
+		}
+		depth++;
+		return out;
+	}
+
+	// Releases the topmost event.
+	private void pop(OGLGUIEvent event)
+	{
+		if (depth == 0 || events[depth - 1] != event)
+			throw new IllegalStateException("Event released out of order, or on the wrong thread.");
+		event.reset();
+		depth--;
+	}
+
+}
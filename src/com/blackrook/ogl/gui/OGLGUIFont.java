@@ -7,13 +7,22 @@
  ******************************************************************************/
 package com.blackrook.ogl.gui;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -24,7 +33,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.blackrook.commons.Common;
-import com.blackrook.commons.hash.HashMap;
 import com.blackrook.ogl.util.OGLSkin;
 
 /**
@@ -32,17 +40,37 @@ import com.blackrook.ogl.util.OGLSkin;
  * rendering character meshes.  
  * @author Matthew Tropiano
  */
-public class OGLGUIFont implements OGLGUIFontType
+public class OGLGUIFont implements OGLGUIKernedFontType
 {
 	/** Default font size. */
 	public static final float DEFAULT_FONT_SIZE = 10f;
 	
+	/** Compiled font magic number ("BRFT"). */
+	private static final int COMPILED_MAGIC = 0x42524654;
+	/** Compiled font format version. */
+	private static final int COMPILED_VERSION = 2;
+
+	/** Binary BMFont info block type. */
+	private static final int BMF_BLOCK_INFO = 1;
+	/** Binary BMFont common block type. */
+	private static final int BMF_BLOCK_COMMON = 2;
+	/** Binary BMFont chars block type. */
+	private static final int BMF_BLOCK_CHARS = 4;
+	/** Binary BMFont kerning pairs block type. */
+	private static final int BMF_BLOCK_KERNING = 5;
+	/** Binary BMFont char record length in bytes. */
+	private static final int BMF_CHAR_LENGTH = 20;
+	/** Binary BMFont kerning pair record length in bytes. */
+	private static final int BMF_KERNING_LENGTH = 10;
+	
 	/** Name of the font. */
 	protected String name;
 	/** skin for this font. */
 	protected OGLSkin group;
-	/** HashMap for the font map. */
-	protected HashMap<Character, FontChar> fontMap; 
+	/** Glyph table for the font map. */
+	private OGLGUIGlyphTable fontMap;
+	/** Kerning pair table. */
+	private OGLGUIKerningTable kerningMap;
 	/** Default character to return if the character is not in the map. */
 	protected FontChar defaultChar;
 	/** Type of directionality to use. */
@@ -80,7 +108,8 @@ public class OGLGUIFont implements OGLGUIFontType
 		this.name = name;
 		this.size = size;
 		this.group = group;
-		fontMap = new HashMap<Character, FontChar>(100);
+		fontMap = new OGLGUIGlyphTable();
+		kerningMap = new OGLGUIKerningTable();
 		defaultChar = new FontChar('\0', 0, 0, 0, 0, 1, 1, 1, 0, 0);
 		directionality = Directionality.LEFT_TO_RIGHT;
 	}
@@ -148,8 +177,8 @@ public class OGLGUIFont implements OGLGUIFontType
 	{
 		defaultChar.s0 = s0;
 		defaultChar.t0 = t0;
-		defaultChar.s1 = t0;
-		defaultChar.t1 = t0;
+		defaultChar.s1 = s1;
+		defaultChar.t1 = t1;
 		defaultChar.width = width;
 		defaultChar.height = height;
 		defaultChar.advance = advance;
@@ -193,7 +222,36 @@ public class OGLGUIFont implements OGLGUIFontType
 	 */
 	public boolean removeChar(char c)
 	{
-		return fontMap.removeUsingKey(c) != null;
+		return fontMap.remove(c);
+	}
+	
+	/**
+	 * Adds a kerning pair to the map, replacing the previous amount for the pair, if any.
+	 * @param first the first character.
+	 * @param second the character that follows it.
+	 * @param amount the kerning amount scalar, or how much to adjust the cursor between the characters.
+	 * The amount of adjustment is the font size times this scalar. An amount of 0 removes the pair. 
+	 */
+	public void addKerning(char first, char second, float amount)
+	{
+		kerningMap.put(first, second, amount);
+	}
+	
+	@Override
+	public float getKerning(char first, char second)
+	{
+		return kerningMap.get(first, second);
+	}
+	
+	/**
+	 * Removes a kerning pair from the map.
+	 * @param first the first character.
+	 * @param second the character that follows it.
+	 * @return true if the pair was removed, false otherwise.
+	 */
+	public boolean removeKerning(char first, char second)
+	{
+		return kerningMap.remove(first, second);
 	}
 	
 	@Override
@@ -324,9 +382,10 @@ public class OGLGUIFont implements OGLGUIFontType
 	}
 
 	/**
-	 * Reads in XML-Formatted BM Font (http://www.angelcode.com/products/bmfont/) generated metadata
-	 * and creates an OGLGUIFont using the data.
-	 * @param file the file that holds the XML data.
+	 * Reads in BM Font (http://www.angelcode.com/products/bmfont/) generated metadata
+	 * and creates an OGLGUIFont using the data. Both the XML and the binary formats
+	 * are read; the format is detected from the start of the file.
+	 * @param file the file that holds the font data.
 	 * @param size the font size in units.
 	 * @param group the skin used for this font.
 	 * @throws IOException if a read error happens.
@@ -334,8 +393,24 @@ public class OGLGUIFont implements OGLGUIFontType
 	public static OGLGUIFont readBMFont(File file, float size, OGLSkin group) throws IOException
 	{
 		FileInputStream fis = new FileInputStream(file);
-		OGLGUIFont out = readBMFont(fis, size, group);
-		fis.close();
+		try {
+			byte[] header = new byte[4];
+			int n = 0;
+			int r;
+			while (n < header.length && (r = fis.read(header, n, header.length - n)) > 0)
+				n += r;
+			if (!isBMFontBinary(ByteBuffer.wrap(header, 0, n)))
+			{
+				fis.getChannel().position(0L);
+				return readBMFont(fis, size, group);
+			}
+		} finally {
+			fis.close();
+		}
+		
+		// only map the file once it is known to be binary.
+		OGLGUIFont out = new OGLGUIFont(size, group);
+		readBMFontBinary(out, mapFile(file));
 		return out;
 	}
 	
@@ -359,6 +434,299 @@ public class OGLGUIFont implements OGLGUIFontType
 		return font;
 	}
 
+	/**
+	 * Reads in binary-formatted BM Font (http://www.angelcode.com/products/bmfont/) generated metadata
+	 * and creates an OGLGUIFont using the data. Only version 3 of the format is supported.
+	 * @param in the input stream for the binary data.
+	 * @param size the font size in units.
+	 * @param group the skin used for this font.
+	 * @throws IOException if a read error happens or the data is not a binary BM Font.
+	 */
+	public static OGLGUIFont readBMFontBinary(InputStream in, float size, OGLSkin group) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(8192);
+		byte[] b = new byte[8192];
+		int n;
+		while ((n = in.read(b)) > 0)
+			bos.write(b, 0, n);
+		
+		OGLGUIFont out = new OGLGUIFont(size, group);
+		readBMFontBinary(out, ByteBuffer.wrap(bos.toByteArray()));
+		return out;
+	}
+
+	/**
+	 * Reads in a font, using a compiled copy of it if it is up to date.
+	 * If the compiled copy is missing, older than the source file, or unreadable,
+	 * the source is read with {@link #readBMFont(File, float, OGLSkin)} and compiled
+	 * to the compiled copy's file for next time. Writing the compiled copy is best-effort:
+	 * if it can't be written (read-only directory, full disk), the font is still returned.
+	 * @param source the BM Font file (XML or binary).
+	 * @param compiled the compiled font file.
+	 * @param size the font size in units.
+	 * @param group the skin used for this font.
+	 * @throws IOException if a read error happens on the source file.
+	 * @see #writeCompiledFont(OGLGUIFont, File)
+	 */
+	public static OGLGUIFont readBMFont(File source, File compiled, float size, OGLSkin group) throws IOException
+	{
+		if (compiled.exists() && compiled.lastModified() >= source.lastModified())
+		{
+			try {
+				OGLGUIFont out = readCompiledFont(compiled, group);
+				out.setSize(size);
+				return out;
+			} catch (IOException e) {
+				// fall through and recompile.
+			}
+		}
+		
+		OGLGUIFont out = readBMFont(source, size, group);
+		try {
+			writeCompiledFont(out, compiled);
+		} catch (IOException e) {
+			// the compiled copy is only a cache.
+		}
+		return out;
+	}
+
+	/**
+	 * Reads a font written by {@link #writeCompiledFont(OGLGUIFont, File)}.
+	 * The file is memory-mapped and read straight into the font's glyph table.
+	 * @param file the compiled font file.
+	 * @param group the skin used for this font.
+	 * @throws IOException if a read error happens or the file is not a compiled font.
+	 */
+	public static OGLGUIFont readCompiledFont(File file, OGLSkin group) throws IOException
+	{
+		ByteBuffer buf = mapFile(file);
+		try {
+			if (buf.getInt() != COMPILED_MAGIC)
+				throw new IOException("File is not a compiled font.");
+			int version = buf.getInt();
+			if (version != COMPILED_VERSION)
+				throw new IOException("Unsupported compiled font version: " + version);
+			
+			char[] name = new char[buf.getShort() & 0xFFFF];
+			buf.asCharBuffer().get(name);
+			buf.position(buf.position() + name.length * 2);
+			
+			OGLGUIFont out = new OGLGUIFont(new String(name), buf.getFloat(), group);
+			out.setDirectionality(Directionality.values()[buf.get()]);
+			out.setDefaultChar(
+				buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), 
+				buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat()
+				);
+			
+			int count = buf.getInt();
+			for (int i = 0; i < count; i++)
+			{
+				out.addChar(buf.getChar(), 
+					buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), 
+					buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat()
+					);
+			}
+			
+			int pairs = buf.getInt();
+			for (int i = 0; i < pairs; i++)
+				out.addKerning(buf.getChar(), buf.getChar(), buf.getFloat());
+			return out;
+		} catch (RuntimeException e) {
+			throw new IOException("Compiled font is damaged or truncated.", e);
+		}
+	}
+
+	/**
+	 * Writes a font to a file in a compact format that can be read back quickly 
+	 * by {@link #readCompiledFont(File, OGLSkin)}. The font's skin is not written.
+	 * <p>The font is written to a temporary file in the same directory, which then replaces
+	 * the output file, so the output file is never left partially written.
+	 * @param font the font to write.
+	 * @param file the output file.
+	 * @throws IOException if a write error happens.
+	 */
+	public static void writeCompiledFont(OGLGUIFont font, File file) throws IOException
+	{
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("." + file.getName() + "-", ".tmp", dir);
+		boolean done = false;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				writeCompiledFont(font, out);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			done = true;
+		} finally {
+			if (!done)
+				temp.delete();
+		}
+	}
+
+	// Writes a font's data to a compiled font stream.
+	private static void writeCompiledFont(OGLGUIFont font, DataOutputStream out) throws IOException
+	{
+		int count = 0;
+		for (int c = 0; c <= Character.MAX_VALUE; c++)
+			if (font.fontMap.get((char)c) != null)
+				count++;
+		
+		out.writeInt(COMPILED_MAGIC);
+		out.writeInt(COMPILED_VERSION);
+		String name = font.name.length() > 0xFFFF ? font.name.substring(0, 0xFFFF) : font.name;
+		out.writeShort(name.length());
+		out.writeChars(name);
+		out.writeFloat(font.size);
+		out.writeByte(font.directionality.ordinal());
+		writeCompiledChar(out, font.defaultChar);
+		out.writeInt(count);
+		for (int c = 0; c <= Character.MAX_VALUE; c++)
+		{
+			FontChar fc = font.fontMap.get((char)c);
+			if (fc != null)
+			{
+				out.writeChar(c);
+				writeCompiledChar(out, fc);
+			}
+		}
+		OGLGUIKerningTable kerning = font.kerningMap;
+		out.writeInt(kerning.size());
+		for (int i = 0; i < kerning.getCapacity(); i++)
+		{
+			int first = kerning.getFirst(i);
+			if (first >= 0)
+			{
+				out.writeChar(first);
+				out.writeChar(kerning.getSecond(i));
+				out.writeFloat(kerning.getAmount(i));
+			}
+		}
+	}
+
+	// Writes a character's metrics to a compiled font.
+	private static void writeCompiledChar(DataOutputStream out, FontChar fc) throws IOException
+	{
+		out.writeFloat(fc.s0);
+		out.writeFloat(fc.t0);
+		out.writeFloat(fc.s1);
+		out.writeFloat(fc.t1);
+		out.writeFloat(fc.width);
+		out.writeFloat(fc.height);
+		out.writeFloat(fc.advance);
+		out.writeFloat(fc.xofs);
+		out.writeFloat(fc.yofs);
+	}
+
+	// Maps a file into memory, read-only.
+	private static ByteBuffer mapFile(File file) throws IOException
+	{
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			FileChannel channel = fis.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			fis.close();
+		}
+	}
+
+	// Returns true if a buffer starts with the binary BMFont header.
+	private static boolean isBMFontBinary(ByteBuffer buf)
+	{
+		int p = buf.position();
+		return buf.remaining() >= 4 && buf.get(p) == 'B' && buf.get(p + 1) == 'M' && buf.get(p + 2) == 'F';
+	}
+
+	// Reads binary BMFont data into a font.
+	private static void readBMFontBinary(OGLGUIFont font, ByteBuffer buf) throws IOException
+	{
+		if (!isBMFontBinary(buf))
+			throw new IOException("Data is not a binary BM Font.");
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.position(buf.position() + 3);
+		int version = buf.get() & 0xFF;
+		if (version != 3)
+			throw new IOException("Unsupported binary BM Font version: " + version);
+		
+		font.setDefaultChar(0, 0, 0, 0, 0, 0, 0, 0, 0);
+		float texWidth = 1f;
+		float texHeight = 1f;
+		float lineHeight = 1f;
+		
+		while (buf.remaining() >= 5)
+		{
+			int type = buf.get() & 0xFF;
+			int length = buf.getInt();
+			if (length < 0 || length > buf.remaining())
+				throw new IOException("Binary BM Font is truncated.");
+			int end = buf.position() + length;
+			
+			switch (type)
+			{
+				case BMF_BLOCK_INFO:
+				{
+					// size, then fixed fields up to the name.
+					lineHeight = Math.abs(buf.getShort());
+					buf.position(buf.position() + 12);
+					int start = buf.position();
+					int nameEnd = start;
+					while (nameEnd < end && buf.get(nameEnd) != 0)
+						nameEnd++;
+					byte[] name = new byte[nameEnd - start];
+					buf.get(name);
+					font.setName(new String(name, "UTF-8"));
+					break;
+				}
+				case BMF_BLOCK_COMMON:
+				{
+					// skip line height and base.
+					buf.position(buf.position() + 4);
+					texWidth = buf.getShort() & 0xFFFF;
+					texHeight = buf.getShort() & 0xFFFF;
+					break;
+				}
+				case BMF_BLOCK_CHARS:
+				{
+					for (int p = buf.position(); p + BMF_CHAR_LENGTH <= end; p += BMF_CHAR_LENGTH)
+					{
+						long id = buf.getInt(p) & 0xFFFFFFFFL;
+						if (id > Character.MAX_VALUE)
+							continue;
+						float x = buf.getShort(p + 4) & 0xFFFF;
+						float y = buf.getShort(p + 6) & 0xFFFF;
+						float w = buf.getShort(p + 8) & 0xFFFF;
+						float h = buf.getShort(p + 10) & 0xFFFF;
+						float xofs = buf.getShort(p + 12);
+						float yofs = buf.getShort(p + 14);
+						float adv = buf.getShort(p + 16);
+						font.addChar((char)id, 
+							x/texWidth, y/texHeight, (x+w)/texWidth, (y+h)/texHeight, 
+							w/lineHeight, h/lineHeight, adv/lineHeight, xofs/lineHeight, yofs/lineHeight);
+					}
+					break;
+				}
+				case BMF_BLOCK_KERNING:
+				{
+					for (int p = buf.position(); p + BMF_KERNING_LENGTH <= end; p += BMF_KERNING_LENGTH)
+					{
+						long first = buf.getInt(p) & 0xFFFFFFFFL;
+						long second = buf.getInt(p + 4) & 0xFFFFFFFFL;
+						if (first > Character.MAX_VALUE || second > Character.MAX_VALUE)
+							continue;
+						font.addKerning((char)first, (char)second, buf.getShort(p + 8) / lineHeight);
+					}
+					break;
+				}
+			}
+			buf.position(end);
+		}
+	}
+
 	/**
 	 * SAX Reader for BMFont.
 	 */
@@ -367,6 +735,7 @@ public class OGLGUIFont implements OGLGUIFontType
 		protected static final String ELEMENT_INFO = "info";
 		protected static final String ELEMENT_COMMON = "common";
 		protected static final String ELEMENT_CHAR = "char";
+		protected static final String ELEMENT_KERNING = "kerning";
 		
 		XMLReader xmlReader;
 		OGLGUIFont font;
@@ -418,6 +787,8 @@ public class OGLGUIFont implements OGLGUIFontType
 					parseCommon(attribs);
 				else if (localName.equals(ELEMENT_CHAR))
 					parseChar(attribs);
+				else if (localName.equals(ELEMENT_KERNING))
+					parseKerning(attribs);
 			}
 
 			// parses info block.
@@ -484,6 +855,29 @@ public class OGLGUIFont implements OGLGUIFontType
 						w/lineHeight, h/lineHeight, adv/lineHeight, xofs/lineHeight, yofs/lineHeight);
 			}
 
+			// parses kerning pair.
+			private void parseKerning(Attributes attribs) throws SAXException
+			{
+				int first = -1;
+				int second = -1;
+				float amount = 0f;
+				
+				for (int i = 0; i < attribs.getLength(); i++)
+				{
+					String name = attribs.getLocalName(i);
+					if (name.equals("first"))
+						first = Integer.parseInt(attribs.getValue(i));
+					else if (name.equals("second"))
+						second = Integer.parseInt(attribs.getValue(i));
+					else if (name.equals("amount"))
+						amount = Float.parseFloat(attribs.getValue(i));
+				}
+				
+				if (first < 0 || first > Character.MAX_VALUE || second < 0 || second > Character.MAX_VALUE)
+					return;
+				font.addKerning((char)first, (char)second, amount/lineHeight);
+			}
+
 			@Override
 			public void endElement(String uri, String localName, String qName) throws SAXException
 			{
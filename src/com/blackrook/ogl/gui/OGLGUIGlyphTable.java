@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import com.blackrook.ogl.gui.OGLGUIFontType.FontChar;
+
+/**
+ * A character-to-glyph lookup table for fonts.
+ * Characters are split into pages of {@value #PAGE_SIZE}. A page becomes a dense array
+ * once it holds {@value #PAGE_THRESHOLD} characters; until then, its characters
+ * are kept in a small open-addressed table keyed on the character itself.
+ * Lookups are one or two array reads, and never allocate.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIGlyphTable
+{
+	/** Characters per page. */
+	static final int PAGE_SIZE = 256;
+	/** Amount of characters in a page before it is made dense. */
+	static final int PAGE_THRESHOLD = 8;
+	/** Shift from character to page index. */
+	private static final int PAGE_SHIFT = 8;
+	/** Mask from character to page offset. */
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	/** Amount of pages. */
+	private static final int PAGE_COUNT = (Character.MAX_VALUE + 1) / PAGE_SIZE;
+
+	/** Dense pages. Null pages have their characters in the sparse table. */
+	private FontChar[][] pages;
+	/** Amount of characters in each page. */
+	private int[] pageCounts;
+
+	/** Sparse table keys. */
+	private char[] sparseKeys;
+	/** Sparse table values. Null values are empty slots. */
+	private FontChar[] sparseValues;
+	/** Amount of entries in the sparse table. */
+	private int sparseCount;
+
+	OGLGUIGlyphTable()
+	{
+		pages = new FontChar[PAGE_COUNT][];
+		pageCounts = new int[PAGE_COUNT];
+		sparseKeys = new char[32];
+		sparseValues = new FontChar[32];
+		sparseCount = 0;
+	}
+
+	/**
+	 * Returns the glyph for a character, or null if there isn't one.
+	 */
+	FontChar get(char c)
+	{
+		FontChar[] page = pages[c >>> PAGE_SHIFT];
+		if (page != null)
+			return page[c & PAGE_MASK];
+
+		int mask = sparseKeys.length - 1;
+		for (int i = hash(c) & mask; sparseValues[i] != null; i = (i + 1) & mask)
+			if (sparseKeys[i] == c)
+				return sparseValues[i];
+		return null;
+	}
+
+	/**
+	 * Sets the glyph for a character, replacing the previous one, if any.
+	 */
+	void put(char c, FontChar glyph)
+	{
+		int p = c >>> PAGE_SHIFT;
+		FontChar[] page = pages[p];
+		if (page != null)
+		{
+			if (page[c & PAGE_MASK] == null)
+				pageCounts[p]++;
+			page[c & PAGE_MASK] = glyph;
+			return;
+		}
+
+		if (sparsePut(c, glyph))
+		{
+			if (++pageCounts[p] >= PAGE_THRESHOLD)
+				makeDense(p);
+		}
+	}
+
+	/**
+	 * Removes the glyph for a character.
+	 * @return true if there was one, false if not.
+	 */
+	boolean remove(char c)
+	{
+		int p = c >>> PAGE_SHIFT;
+		FontChar[] page = pages[p];
+		boolean out;
+		if (page != null)
+		{
+			out = page[c & PAGE_MASK] != null;
+			page[c & PAGE_MASK] = null;
+		}
+		else
+			out = sparseRemove(c);
+
+		if (out)
+			pageCounts[p]--;
+		return out;
+	}
+
+	// Moves a page's characters out of the sparse table into a dense page.
+	private void makeDense(int p)
+	{
+		FontChar[] page = new FontChar[PAGE_SIZE];
+		char[] oldKeys = sparseKeys;
+		FontChar[] oldValues = sparseValues;
+		sparseKeys = new char[oldKeys.length];
+		sparseValues = new FontChar[oldValues.length];
+		sparseCount = 0;
+		for (int i = 0; i < oldValues.length; i++)
+		{
+			if (oldValues[i] == null)
+				continue;
+			if (oldKeys[i] >>> PAGE_SHIFT == p)
+				page[oldKeys[i] & PAGE_MASK] = oldValues[i];
+			else
+				sparsePut(oldKeys[i], oldValues[i]);
+		}
+		pages[p] = page;
+	}
+
+	// Puts an entry in the sparse table. Returns true if the key is new.
+	private boolean sparsePut(char c, FontChar glyph)
+	{
+		int mask = sparseKeys.length - 1;
+		int i = hash(c) & mask;
+		for (; sparseValues[i] != null; i = (i + 1) & mask)
+		{
+			if (sparseKeys[i] == c)
+			{
+				sparseValues[i] = glyph;
+				return false;
+			}
+		}
+		sparseKeys[i] = c;
+		sparseValues[i] = glyph;
+		if (++sparseCount * 2 > sparseKeys.length)
+			resizeSparse(sparseKeys.length * 2);
+		return true;
+	}
+
+	// Removes an entry from the sparse table, shifting back the entries after it.
+	private boolean sparseRemove(char c)
+	{
+		int mask = sparseKeys.length - 1;
+		int i = hash(c) & mask;
+		while (sparseValues[i] != null && sparseKeys[i] != c)
+			i = (i + 1) & mask;
+		if (sparseValues[i] == null)
+			return false;
+
+		sparseValues[i] = null;
+		sparseCount--;
+		for (int j = (i + 1) & mask; sparseValues[j] != null; j = (j + 1) & mask)
+		{
+			int home = hash(sparseKeys[j]) & mask;
+			// move the entry back if its home slot is not between the hole and it.
+			if (((j - home) & mask) >= ((j - i) & mask))
+			{
+				sparseKeys[i] = sparseKeys[j];
+				sparseValues[i] = sparseValues[j];
+				sparseValues[j] = null;
+				i = j;
+			}
+		}
+		return true;
+	}
+
+	// Rehashes the sparse table into a new capacity.
+	private void resizeSparse(int capacity)
+	{
+		char[] oldKeys = sparseKeys;
+		FontChar[] oldValues = sparseValues;
+		sparseKeys = new char[capacity];
+		sparseValues = new FontChar[capacity];
+		sparseCount = 0;
+		for (int i = 0; i < oldValues.length; i++)
+			if (oldValues[i] != null)
+				sparsePut(oldKeys[i], oldValues[i]);
+	}
+
+	// Spreads a character across the sparse table.
+	private static int hash(char c)
+	{
+		return (c * 0x9E3779B1) >>> 16;
+	}
+
+}
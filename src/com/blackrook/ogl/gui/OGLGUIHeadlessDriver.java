@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import com.blackrook.commons.list.List;
+
+/**
+ * Drives an {@link OGLGUI} without an OpenGL context, for simulating, testing,
+ * and benchmarking GUI logic on machines without a GPU.
+ * <p>Each step advances a fake clock, handles input, updates animations, and records
+ * the objects that would have been rendered, in render order,
+ * exactly as {@link OGLGUI#display(com.blackrook.ogl.OGLGraphics)} would have,
+ * minus the rendering. Input is injected through the GUI's normal input methods,
+ * so input queueing and coalescing behave the same as they would with a real canvas.
+ * @author Matthew Tropiano
+ */
+public class OGLGUIHeadlessDriver
+{
+	/** Default frame step in milliseconds (60 frames per second). */
+	public static final float DEFAULT_FRAME_MILLIS = 1000f / 60f;
+
+	/** The driven GUI. */
+	private OGLGUI gui;
+	/** Frame step in milliseconds. */
+	private float frameMillis;
+	/** Fake clock time in milliseconds. */
+	private double currentMillis;
+	/** Amount of frames stepped. */
+	private long frameCount;
+	/** Last mouse canvas position, x-axis. */
+	private int mouseX;
+	/** Last mouse canvas position, y-axis. */
+	private int mouseY;
+	/** Objects rendered in the last frame. */
+	private List<OGLGUIObject> renderList;
+	/** Render nodes created in the last frame. */
+	private int renderNodeCount;
+
+	/**
+	 * Creates a new headless driver for a GUI, with a frame step of {@link #DEFAULT_FRAME_MILLIS}.
+	 * @param gui the GUI to drive.
+	 * @param canvasWidth the width of the pretend canvas, for mouse coordinates.
+	 * @param canvasHeight the height of the pretend canvas, for mouse coordinates.
+	 */
+	public OGLGUIHeadlessDriver(OGLGUI gui, int canvasWidth, int canvasHeight)
+	{
+		this(gui, canvasWidth, canvasHeight, DEFAULT_FRAME_MILLIS);
+	}
+
+	/**
+	 * Creates a new headless driver for a GUI.
+	 * @param gui the GUI to drive.
+	 * @param canvasWidth the width of the pretend canvas, for mouse coordinates.
+	 * @param canvasHeight the height of the pretend canvas, for mouse coordinates.
+	 * @param frameMillis the amount of milliseconds that each call to {@link #step()} advances.
+	 * @throws IllegalArgumentException if the canvas dimensions are not positive.
+	 */
+	public OGLGUIHeadlessDriver(OGLGUI gui, int canvasWidth, int canvasHeight, float frameMillis)
+	{
+		if (canvasWidth <= 0 || canvasHeight <= 0)
+			throw new IllegalArgumentException("Canvas dimensions must be positive.");
+		this.gui = gui;
+		this.frameMillis = frameMillis;
+		this.currentMillis = 0.0;
+		this.frameCount = 0L;
+		this.mouseX = 0;
+		this.mouseY = 0;
+		this.renderList = new List<OGLGUIObject>(64);
+		this.renderNodeCount = 0;
+		gui.setHeadlessCanvasSize(canvasWidth, canvasHeight);
+	}
+
+	/**
+	 * Returns the driven GUI.
+	 */
+	public OGLGUI getGUI()
+	{
+		return gui;
+	}
+
+	/**
+	 * Returns the amount of milliseconds that each call to {@link #step()} advances.
+	 */
+	public float getFrameMillis()
+	{
+		return frameMillis;
+	}
+
+	/**
+	 * Sets the amount of milliseconds that each call to {@link #step()} advances.
+	 */
+	public void setFrameMillis(float frameMillis)
+	{
+		this.frameMillis = frameMillis;
+	}
+
+	/**
+	 * Returns the fake clock's current time in milliseconds.
+	 */
+	public double getCurrentMillis()
+	{
+		return currentMillis;
+	}
+
+	/**
+	 * Returns the amount of frames stepped.
+	 */
+	public long getFrameCount()
+	{
+		return frameCount;
+	}
+
+	/**
+	 * Steps a single frame of the default length.
+	 */
+	public void step()
+	{
+		step(frameMillis);
+	}
+
+	/**
+	 * Steps a single frame.
+	 * @param millis the amount of milliseconds that this frame advances the clock.
+	 */
+	public void step(float millis)
+	{
+		renderList.clear();
+		renderNodeCount = gui.displayHeadless(millis, renderList);
+		currentMillis += millis;
+		frameCount++;
+	}
+
+	/**
+	 * Steps many frames of the default length.
+	 * @param frames the amount of frames.
+	 */
+	public void steps(int frames)
+	{
+		for (int i = 0; i < frames; i++)
+			step(frameMillis);
+	}
+
+	/**
+	 * Returns the objects that would have been rendered in the last frame, in render order.
+	 * This list is reused between frames.
+	 */
+	public List<OGLGUIObject> getRenderList()
+	{
+		return renderList;
+	}
+
+	/**
+	 * Returns the amount of render nodes (one per skin step per object)
+	 * that would have been created in the last frame.
+	 */
+	public int getRenderNodeCount()
+	{
+		return renderNodeCount;
+	}
+
+	/**
+	 * Moves the mouse to a canvas position.
+	 * @param x the canvas position, x-axis.
+	 * @param y the canvas position, y-axis.
+	 */
+	public void mouseMoveTo(int x, int y)
+	{
+		mouseMove(x - mouseX, x, y - mouseY, y);
+	}
+
+	/**
+	 * Moves the mouse.
+	 * @param unitsX the amount of units moved, x-axis.
+	 * @param coordinateX the new canvas position, x-axis.
+	 * @param unitsY the amount of units moved, y-axis.
+	 * @param coordinateY the new canvas position, y-axis.
+	 */
+	public void mouseMove(int unitsX, int coordinateX, int unitsY, int coordinateY)
+	{
+		mouseX = coordinateX;
+		mouseY = coordinateY;
+		gui.glMouseMove(unitsX, coordinateX, unitsY, coordinateY);
+	}
+
+	/**
+	 * Moves the mouse off of the canvas.
+	 */
+	public void mouseExit()
+	{
+		gui.glMouseExit();
+	}
+
+	/**
+	 * Presses a mouse button.
+	 * @param button the mouse button.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean mousePress(int button)
+	{
+		return gui.glMousePress(button);
+	}
+
+	/**
+	 * Releases a mouse button.
+	 * @param button the mouse button.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean mouseRelease(int button)
+	{
+		return gui.glMouseRelease(button);
+	}
+
+	/**
+	 * Presses and releases a mouse button.
+	 * @param button the mouse button.
+	 */
+	public void mouseClick(int button)
+	{
+		mousePress(button);
+		mouseRelease(button);
+	}
+
+	/**
+	 * Turns the mouse wheel.
+	 * @param units the amount of units turned.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean mouseWheel(int units)
+	{
+		return gui.glMouseWheel(units);
+	}
+
+	/**
+	 * Presses a keyboard key.
+	 * @param keyCode the key code.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean keyPress(int keyCode)
+	{
+		return gui.glKeyPress(keyCode);
+	}
+
+	/**
+	 * Releases a keyboard key.
+	 * @param keyCode the key code.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean keyRelease(int keyCode)
+	{
+		return gui.glKeyRelease(keyCode);
+	}
+
+	/**
+	 * Types a keyboard key.
+	 * @param keyCode the key code.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean keyType(int keyCode)
+	{
+		return gui.glKeyTyped(keyCode);
+	}
+
+	/**
+	 * Presses a gamepad button.
+	 * @param gamepadId the gamepad id.
+	 * @param button the gamepad button.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean gamepadPress(int gamepadId, int button)
+	{
+		return gui.glGamepadPress(gamepadId, button);
+	}
+
+	/**
+	 * Releases a gamepad button.
+	 * @param gamepadId the gamepad id.
+	 * @param button the gamepad button.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean gamepadRelease(int gamepadId, int button)
+	{
+		return gui.glGamepadRelease(gamepadId, button);
+	}
+
+	/**
+	 * Changes a gamepad axis value.
+	 * @param gamepadId the gamepad id.
+	 * @param axisId the axis id.
+	 * @param value the new axis value.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean gamepadAxis(int gamepadId, int axisId, float value)
+	{
+		return gui.glGamepadAxisChange(gamepadId, axisId, value);
+	}
+
+	/**
+	 * Taps a gamepad axis.
+	 * @param gamepadId the gamepad id.
+	 * @param axisId the axis id.
+	 * @param positive if true, the tap was in the positive direction.
+	 * @return true if the GUI handled it, false if not.
+	 */
+	public boolean gamepadTap(int gamepadId, int axisId, boolean positive)
+	{
+		return gui.glGamepadAxisTap(gamepadId, axisId, positive);
+	}
+
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.commons.math.geometry.Rectangle2F;
+
+/**
+ * A uniform grid of GUI object absolute bounds, used for finding
+ * the objects that may be underneath a point without testing every object in a GUI.
+ * <p>Objects that would span too many cells are kept in a separate list
+ * that is always tested.
+ * <p>This is NOT THREAD-SAFE - callers must synchronize on this object.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIHitIndex
+{
+	/** Default cell size in units. */
+	static final float DEFAULT_CELL_SIZE = 64f;
+	/** Maximum amount of cells an object can occupy before it is considered "large." */
+	static final int MAX_CELLS_PER_OBJECT = 64;
+
+	/** Object state: not in index. */
+	static final int STATE_NONE = 0;
+	/** Object state: in grid cells. */
+	static final int STATE_CELLS = 1;
+	/** Object state: in the large object list. */
+	static final int STATE_LARGE = 2;
+
+	/** Size of a single cell in units. */
+	private float cellSize;
+
+	/** Cell table keys (packed cell coordinates). */
+	private long[] cellKeys;
+	/** Cell table values. */
+	private Object[] cellLists;
+	/** Amount of used cells in the table. */
+	private int cellCount;
+
+	/** List of objects too large to place in cells. */
+	private List<OGLGUIObject> largeObjects;
+
+	/**
+	 * Creates a new hit index.
+	 * @param cellSize the size of a single cell in units.
+	 */
+	OGLGUIHitIndex(float cellSize)
+	{
+		this.cellSize = cellSize;
+		this.cellKeys = new long[64];
+		this.cellLists = new Object[64];
+		this.cellCount = 0;
+		this.largeObjects = new List<OGLGUIObject>(8);
+	}
+
+	/**
+	 * Returns the size of a single cell in units.
+	 */
+	float getCellSize()
+	{
+		return cellSize;
+	}
+
+	/**
+	 * Clears this index and changes the cell size.
+	 * Objects that were in the index are marked as not indexed.
+	 * @param cellSize the new cell size in units.
+	 */
+	void reset(float cellSize)
+	{
+		for (int i = 0; i < cellLists.length; i++)
+		{
+			List<OGLGUIObject> list = getList(i);
+			if (list != null)
+			{
+				for (int x = 0; x < list.size(); x++)
+					list.getByIndex(x).hitIndexState = STATE_NONE;
+			}
+		}
+		for (int x = 0; x < largeObjects.size(); x++)
+			largeObjects.getByIndex(x).hitIndexState = STATE_NONE;
+
+		this.cellSize = cellSize;
+		this.cellKeys = new long[64];
+		this.cellLists = new Object[64];
+		this.cellCount = 0;
+		this.largeObjects.clear();
+	}
+
+	/**
+	 * Adds or re-adds an object to the index using its current absolute bounds.
+	 * @param object the object to add.
+	 */
+	void update(OGLGUIObject object)
+	{
+		Rectangle2F bounds = object.absoluteBounds;
+		int x0 = cellCoordinate(bounds.x);
+		int y0 = cellCoordinate(bounds.y);
+		int x1 = cellCoordinate(bounds.x + bounds.width);
+		int y1 = cellCoordinate(bounds.y + bounds.height);
+
+		// no change.
+		if (object.hitIndexState == STATE_CELLS
+			&& object.hitCellX0 == x0 && object.hitCellY0 == y0
+			&& object.hitCellX1 == x1 && object.hitCellY1 == y1)
+			return;
+
+		remove(object);
+
+		long cells = ((long)x1 - x0 + 1) * ((long)y1 - y0 + 1);
+		if (cells > MAX_CELLS_PER_OBJECT)
+		{
+			largeObjects.add(object);
+			object.hitIndexState = STATE_LARGE;
+			return;
+		}
+
+		for (int y = y0; y <= y1; y++)
+			for (int x = x0; x <= x1; x++)
+				getOrCreateList(x, y).add(object);
+
+		object.hitCellX0 = x0;
+		object.hitCellY0 = y0;
+		object.hitCellX1 = x1;
+		object.hitCellY1 = y1;
+		object.hitIndexState = STATE_CELLS;
+	}
+
+	/**
+	 * Removes an object from the index.
+	 * @param object the object to remove.
+	 */
+	void remove(OGLGUIObject object)
+	{
+		switch (object.hitIndexState)
+		{
+			case STATE_CELLS:
+			{
+				for (int y = object.hitCellY0; y <= object.hitCellY1; y++)
+					for (int x = object.hitCellX0; x <= object.hitCellX1; x++)
+						removeFromCell(x, y, object);
+				break;
+			}
+			case STATE_LARGE:
+				largeObjects.remove(object);
+				break;
+		}
+		object.hitIndexState = STATE_NONE;
+	}
+
+	/**
+	 * Returns the list of objects whose bounds overlap the cell that contains a point.
+	 * @param x the point, x-coordinate.
+	 * @param y the point, y-coordinate.
+	 * @return the list of objects in the cell, or null if no objects.
+	 */
+	List<OGLGUIObject> getCell(float x, float y)
+	{
+		return getList(cellCoordinate(x), cellCoordinate(y));
+	}
+
+	/**
+	 * Returns the list of objects that are too large to be placed in cells.
+	 */
+	List<OGLGUIObject> getLargeObjects()
+	{
+		return largeObjects;
+	}
+
+	// Gets the cell coordinate for a position.
+	private int cellCoordinate(float f)
+	{
+		return (int)Math.floor(f / cellSize);
+	}
+
+	// Packs a cell coordinate.
+	private static long packKey(int x, int y)
+	{
+		return ((long)x << 32) | (y & 0xffffffffL);
+	}
+
+	// Gets a table slot index for a key.
+	private static int hashKey(long key, int mask)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<OGLGUIObject> getList(int slot)
+	{
+		return (List<OGLGUIObject>)cellLists[slot];
+	}
+
+	// Gets the list at a cell, or null if no list.
+	private List<OGLGUIObject> getList(int x, int y)
+	{
+		long key = packKey(x, y);
+		int mask = cellKeys.length - 1;
+		int slot = hashKey(key, mask);
+		while (cellLists[slot] != null)
+		{
+			if (cellKeys[slot] == key)
+				return getList(slot);
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	// Gets the list at a cell, creating it if it doesn't exist.
+	private List<OGLGUIObject> getOrCreateList(int x, int y)
+	{
+		List<OGLGUIObject> out = getList(x, y);
+		if (out != null)
+			return out;
+
+		if ((cellCount + 1) * 2 > cellKeys.length)
+			expand();
+
+		out = new List<OGLGUIObject>(4);
+		insert(packKey(x, y), out);
+		cellCount++;
+		return out;
+	}
+
+	// Removes an object from the list at a cell, and removes the cell if its list is left empty.
+	private void removeFromCell(int x, int y, OGLGUIObject object)
+	{
+		long key = packKey(x, y);
+		int mask = cellKeys.length - 1;
+		int slot = hashKey(key, mask);
+		while (cellLists[slot] != null && cellKeys[slot] != key)
+			slot = (slot + 1) & mask;
+		if (cellLists[slot] == null)
+			return;
+
+		List<OGLGUIObject> list = getList(slot);
+		list.remove(object);
+		if (list.size() > 0)
+			return;
+
+		cellLists[slot] = null;
+		cellCount--;
+		for (int j = (slot + 1) & mask; cellLists[j] != null; j = (j + 1) & mask)
+		{
+			int home = hashKey(cellKeys[j], mask);
+			// move the entry back if its home slot is not between the hole and it.
+			if (((j - home) & mask) >= ((j - slot) & mask))
+			{
+				cellKeys[slot] = cellKeys[j];
+				cellLists[slot] = cellLists[j];
+				cellLists[j] = null;
+				slot = j;
+			}
+		}
+	}
+
+	// Inserts a list into the table (no checks).
+	private void insert(long key, List<OGLGUIObject> list)
+	{
+		int mask = cellKeys.length - 1;
+		int slot = hashKey(key, mask);
+		while (cellLists[slot] != null)
+			slot = (slot + 1) & mask;
+		cellKeys[slot] = key;
+		cellLists[slot] = list;
+	}
+
+	// Doubles the cell table.
+	private void expand()
+	{
+		long[] oldKeys = cellKeys;
+		Object[] oldLists = cellLists;
+		cellKeys = new long[oldKeys.length * 2];
+		cellLists = new Object[oldLists.length * 2];
+		for (int i = 0; i < oldLists.length; i++)
+		{
+			if (oldLists[i] != null)
+			{
+				@SuppressWarnings("unchecked")
+				List<OGLGUIObject> list = (List<OGLGUIObject>)oldLists[i];
+				insert(oldKeys[i], list);
+			}
+		}
+	}
+
+}
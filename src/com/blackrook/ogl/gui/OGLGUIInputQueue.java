@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free, multiple-producer, single-consumer queue of input records.
+ * Any thread may add records, but only one thread (the rendering thread) may poll them.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIInputQueue
+{
+	static final int KEY_PRESS = 0;
+	static final int KEY_RELEASE = 1;
+	static final int KEY_TYPED = 2;
+	static final int GAMEPAD_PRESS = 3;
+	static final int GAMEPAD_RELEASE = 4;
+	static final int GAMEPAD_AXIS = 5;
+	static final int GAMEPAD_TAP = 6;
+	static final int MOUSE_PRESS = 7;
+	static final int MOUSE_RELEASE = 8;
+	static final int MOUSE_WHEEL = 9;
+	static final int MOUSE_MOVE = 10;
+	static final int MOUSE_EXIT = 11;
+
+	/**
+	 * A single input record.
+	 */
+	static final class Record
+	{
+		/** Record type. */
+		int type;
+		/** Integer argument 0. */
+		int arg0;
+		/** Integer argument 1. */
+		int arg1;
+		/** Integer argument 2. */
+		int arg2;
+		/** Integer argument 3. */
+		int arg3;
+		/** Float argument. */
+		float value;
+		/** Next record in queue. */
+		volatile Record next;
+	}
+
+	/** Most recently added record (producers). */
+	private final AtomicReference<Record> head;
+	/** Last consumed record (consumer). */
+	private Record tail;
+
+	OGLGUIInputQueue()
+	{
+		Record stub = new Record();
+		head = new AtomicReference<Record>(stub);
+		tail = stub;
+	}
+
+	/**
+	 * Adds a record to the queue. Safe to call from any thread.
+	 * @param type the record type.
+	 * @param arg0 integer argument 0.
+	 * @param arg1 integer argument 1.
+	 * @param arg2 integer argument 2.
+	 * @param arg3 integer argument 3.
+	 * @param value float argument.
+	 */
+	void add(int type, int arg0, int arg1, int arg2, int arg3, float value)
+	{
+		Record record = new Record();
+		record.type = type;
+		record.arg0 = arg0;
+		record.arg1 = arg1;
+		record.arg2 = arg2;
+		record.arg3 = arg3;
+		record.value = value;
+		Record prev = head.getAndSet(record);
+		prev.next = record;
+	}
+
+	/**
+	 * Removes and returns the next record in the queue.
+	 * Must only be called from the consuming thread.
+	 * @return the next record, or null if the queue is empty
+	 * (or a record is still being added).
+	 */
+	Record poll()
+	{
+		Record next = tail.next;
+		if (next == null)
+			return null;
+		tail = next;
+		return next;
+	}
+
+	/**
+	 * Returns true if this queue has no records to poll.
+	 */
+	boolean isEmpty()
+	{
+		return tail.next == null;
+	}
+
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+/**
+ * Font type that also has kerning between pairs of characters.
+ * Text objects check for this type, and fonts that don't implement it are not kerned.
+ * @author Matthew Tropiano
+ */
+public interface OGLGUIKernedFontType extends OGLGUIFontType
+{
+
+	/**
+	 * Gets the kerning between two characters, or how much to adjust the cursor
+	 * between placing the first and the second, in relation to overall size 
+	 * (1.0 is equal to fontsize).
+	 * @param first the first character.
+	 * @param second the character that follows it.
+	 * @return the kerning amount, or 0 if the pair has no kerning.
+	 */
+	public float getKerning(char first, char second);
+
+}
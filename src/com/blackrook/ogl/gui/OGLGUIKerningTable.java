@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+
+/**
+ * A map of character pairs to kerning amounts for fonts.
+ * Pairs are packed into a single long key and kept in an open-addressed table,
+ * so lookups never box or allocate. Pairs with no kerning are not stored.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIKerningTable
+{
+	/** Key for empty slots (no packed pair can be negative). */
+	private static final long EMPTY = -1L;
+
+	/** Keys. */
+	private long[] keys;
+	/** Kerning amounts. */
+	private float[] amounts;
+	/** Amount of pairs. */
+	private int count;
+
+	OGLGUIKerningTable()
+	{
+		keys = newKeys(16);
+		amounts = new float[16];
+		count = 0;
+	}
+
+	/**
+	 * Returns the amount of pairs in this table.
+	 */
+	int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the kerning amount for a pair of characters, or 0 if there isn't one.
+	 */
+	float get(char first, char second)
+	{
+		if (count == 0)
+			return 0f;
+		long key = pack(first, second);
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return amounts[i];
+		return 0f;
+	}
+
+	/**
+	 * Sets the kerning amount for a pair of characters.
+	 * Setting an amount of 0 removes the pair.
+	 */
+	void put(char first, char second, float amount)
+	{
+		if (amount == 0f)
+		{
+			remove(first, second);
+			return;
+		}
+
+		long key = pack(first, second);
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		for (; keys[i] != EMPTY; i = (i + 1) & mask)
+		{
+			if (keys[i] == key)
+			{
+				amounts[i] = amount;
+				return;
+			}
+		}
+		keys[i] = key;
+		amounts[i] = amount;
+		if (++count * 2 > keys.length)
+			resize(keys.length * 2);
+	}
+
+	/**
+	 * Removes the kerning for a pair of characters.
+	 * @return true if there was kerning for the pair, false if not.
+	 */
+	boolean remove(char first, char second)
+	{
+		long key = pack(first, second);
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+		if (keys[i] == EMPTY)
+			return false;
+
+		keys[i] = EMPTY;
+		count--;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask)
+		{
+			int home = hash(keys[j]) & mask;
+			// move the entry back if its home slot is not between the hole and it.
+			if (((j - home) & mask) >= ((j - i) & mask))
+			{
+				keys[i] = keys[j];
+				amounts[i] = amounts[j];
+				keys[j] = EMPTY;
+				i = j;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the first character of the pair in a slot, or -1 if the slot is empty.
+	 * Used with {@link #getCapacity()} for walking every pair.
+	 */
+	int getFirst(int slot)
+	{
+		return keys[slot] == EMPTY ? -1 : (int)(keys[slot] >>> 16);
+	}
+
+	/**
+	 * Returns the second character of the pair in a slot. The slot must not be empty.
+	 */
+	char getSecond(int slot)
+	{
+		return (char)keys[slot];
+	}
+
+	/**
+	 * Returns the kerning amount of the pair in a slot. The slot must not be empty.
+	 */
+	float getAmount(int slot)
+	{
+		return amounts[slot];
+	}
+
+	/**
+	 * Returns the amount of slots in this table.
+	 */
+	int getCapacity()
+	{
+		return keys.length;
+	}
+
+	// Rehashes the table into a new capacity.
+	private void resize(int capacity)
+	{
+		long[] oldKeys = keys;
+		float[] oldAmounts = amounts;
+		keys = newKeys(capacity);
+		amounts = new float[capacity];
+		count = 0;
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != EMPTY)
+				put((char)(oldKeys[i] >>> 16), (char)oldKeys[i], oldAmounts[i]);
+	}
+
+	// Creates an empty key array.
+	private static long[] newKeys(int capacity)
+	{
+		long[] out = new long[capacity];
+		Arrays.fill(out, EMPTY);
+		return out;
+	}
+
+	// Packs a pair of characters into a key.
+	private static long pack(char first, char second)
+	{
+		return ((long)first << 16) | second;
+	}
+
+	// Spreads a key across the table.
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h >>> 32);
+	}
+
+}
@@ -0,0 +1,600 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+import com.blackrook.commons.hash.Hash;
+import com.blackrook.commons.list.List;
+import com.blackrook.ogl.gui.object.OGLGUIToggleable;
+
+/**
+ * A lazy query: a chain of selectors that is not run until its results are asked for.
+ * Each selector returns a new lazy query with one more step, and nothing is searched
+ * or collected until one of the terminal methods ({@link #forEach(Visitor)}, {@link #count()},
+ * {@link #isEmpty()}, {@link #getFirstObject()}, or {@link #toQuery()}) is called. Then
+ * every step runs in a single pass, passing each object along to the next step as it is found,
+ * without building a query result between steps.
+ * <p>The objects found are the same ones that the same chain of selectors would find on an
+ * {@link OGLGUIQuery}, in the same order, except that name pattern matches are in search order.
+ * A lazy query can be run many times, and sees the objects as they are at the time it is run.
+ * <p>Lazy queries that start from a GUI are run while holding that GUI's lock.
+ * @author Matthew Tropiano
+ * @see OGLGUIQuery#lazy()
+ * @see OGLGUI#getAllLazy()
+ */
+public final class OGLGUILazyQuery
+{
+	/** No steps. */
+	private static final Step[] NO_STEPS = new Step[0];
+
+	/**
+	 * Receives the objects found by a lazy query, one at a time.
+	 */
+	public interface Visitor
+	{
+		/**
+		 * Called for each object found.
+		 * @param object the object.
+		 * @return true to keep going, false to stop the query.
+		 */
+		public boolean visit(OGLGUIObject object);
+	}
+
+	/** Source GUI, or null if the source is a query. */
+	private OGLGUI sourceGUI;
+	/** Source query, or null if the source is a GUI. */
+	private OGLGUIQuery sourceQuery;
+	/** Steps, in order. */
+	private Step[] steps;
+
+	/**
+	 * Creates a lazy query over every object in a GUI.
+	 */
+	OGLGUILazyQuery(OGLGUI gui)
+	{
+		this.sourceGUI = gui;
+		this.sourceQuery = null;
+		this.steps = NO_STEPS;
+	}
+
+	/**
+	 * Creates a lazy query over the objects in a query.
+	 */
+	OGLGUILazyQuery(OGLGUIQuery query)
+	{
+		this.sourceGUI = null;
+		this.sourceQuery = query;
+		this.steps = NO_STEPS;
+	}
+
+	// Creates a new lazy query with one more step.
+	private OGLGUILazyQuery(OGLGUILazyQuery query, Step step)
+	{
+		this.sourceGUI = query.sourceGUI;
+		this.sourceQuery = query.sourceQuery;
+		this.steps = Arrays.copyOf(query.steps, query.steps.length + 1);
+		this.steps[query.steps.length] = step;
+	}
+
+	/**
+	 * Selects the objects that have all of the provided names.
+	 * @see OGLGUIQuery#getByName(String...)
+	 */
+	public OGLGUILazyQuery getByName(final String ... names)
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				for (String name : names)
+					if (!object.hasName(name))
+						return false;
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects that have a name that matches a regex pattern.
+	 * @see OGLGUIQuery#getByPattern(String)
+	 */
+	public OGLGUILazyQuery getByPattern(final String pattern)
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				final Matcher matcher = OGLGUINamePatterns.get(pattern).matcher("");
+				return new Sink()
+				{
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						for (String name : object.getNameHash())
+							if (matcher.reset(name).matches())
+								return next.accept(object);
+						return true;
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects that are instances of a class.
+	 * @see OGLGUIQuery#getByType(Class)
+	 */
+	public OGLGUILazyQuery getByType(final Class<?> clazz)
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				return clazz.isInstance(object);
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects with a specific layout attribute.
+	 * @see OGLGUIQuery#getByAttrib(Object)
+	 */
+	public OGLGUILazyQuery getByAttrib(final Object layoutAttribute)
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				return layoutAttribute == null || object.getLayoutAttrib() == null
+					? layoutAttribute == object.getLayoutAttrib()
+					: layoutAttribute.equals(object.getLayoutAttrib());
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects that are animating.
+	 * @see OGLGUIQuery#getAnimating()
+	 */
+	public OGLGUILazyQuery getAnimating()
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				return object.isAnimating();
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects that are visible on camera.
+	 * @see OGLGUIQuery#getOnCamera()
+	 */
+	public OGLGUILazyQuery getOnCamera()
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				return object.isOnCamera();
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects that are visible.
+	 * @see OGLGUIQuery#getVisible()
+	 */
+	public OGLGUILazyQuery getVisible()
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				return object.isVisible();
+			}
+		});
+	}
+
+	/**
+	 * Selects the toggleable objects with a matching toggle state.
+	 * @see OGLGUIQuery#getHavingState(boolean)
+	 */
+	public OGLGUILazyQuery getHavingState(final boolean state)
+	{
+		return filter(new Filter()
+		{
+			@Override
+			boolean test(OGLGUIObject object)
+			{
+				return object instanceof OGLGUIToggleable && ((OGLGUIToggleable)object).isSet() == state;
+			}
+		});
+	}
+
+	/**
+	 * Selects the children of the objects.
+	 * @see OGLGUIQuery#getChildren()
+	 */
+	public OGLGUILazyQuery getChildren()
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				// children of different objects are always different objects.
+				return new Sink()
+				{
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						List<OGLGUIObject> children = object.getChildren();
+						for (int i = 0; i < children.size(); i++)
+							if (!next.accept(children.getByIndex(i)))
+								return false;
+						return true;
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects and all of their descendants.
+	 * @see OGLGUIQuery#getDescendants()
+	 */
+	public OGLGUILazyQuery getDescendants()
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				return new Sink()
+				{
+					private Hash<OGLGUIObject> seen = null;
+
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						if (seen == null)
+							seen = new Hash<OGLGUIObject>();
+						return acceptTree(object);
+					}
+
+					// an object already seen had its whole tree passed along with it.
+					private boolean acceptTree(OGLGUIObject object)
+					{
+						if (seen.contains(object))
+							return true;
+						seen.put(object);
+						if (!next.accept(object))
+							return false;
+						List<OGLGUIObject> children = object.getChildren();
+						for (int i = 0; i < children.size(); i++)
+							if (!acceptTree(children.getByIndex(i)))
+								return false;
+						return true;
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Selects the siblings of the objects.
+	 * @see OGLGUIQuery#getSiblings()
+	 */
+	public OGLGUILazyQuery getSiblings()
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				return new DistinctSink(next)
+				{
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						OGLGUIObject parent = object.getParent();
+						if (parent == null)
+							return true;
+						List<OGLGUIObject> children = parent.getChildren();
+						for (int i = 0; i < children.size(); i++)
+						{
+							OGLGUIObject child = children.getByIndex(i);
+							if (child != object && !pass(child))
+								return false;
+						}
+						return true;
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Selects the parents of the objects.
+	 * @see OGLGUIQuery#getParents()
+	 */
+	public OGLGUILazyQuery getParents()
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				return new DistinctSink(next)
+				{
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						OGLGUIObject parent = object.getParent();
+						return parent == null || pass(parent);
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Selects the objects at an index pattern, counting the objects found by the previous steps.
+	 * @see OGLGUIQuery#getOffsetAndModulo(int, int)
+	 */
+	public OGLGUILazyQuery getOffsetAndModulo(final int offset, final int modulo)
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				return new Sink()
+				{
+					private int index = 0;
+
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						return (index++ - offset) % modulo != 0 || next.accept(object);
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Selects a range of the objects found by the previous steps.
+	 * The query stops once the end of the range is reached.
+	 * @param startIndex the starting index, INCLUSIVE.
+	 * @param endIndex the ending index, EXCLUSIVE.
+	 * @see OGLGUIQuery#getSubQuery(int, int)
+	 */
+	public OGLGUILazyQuery getSubQuery(final int startIndex, final int endIndex)
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				return new Sink()
+				{
+					private int index = 0;
+
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						int i = index++;
+						if (i >= endIndex)
+							return false;
+						return i < startIndex || (next.accept(object) && i + 1 < endIndex);
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Runs this query, passing each object found to a visitor.
+	 * @param visitor the visitor to call for each object, until it returns false.
+	 */
+	public void forEach(final Visitor visitor)
+	{
+		run(new Sink()
+		{
+			@Override
+			boolean accept(OGLGUIObject object)
+			{
+				return visitor.visit(object);
+			}
+		});
+	}
+
+	/**
+	 * Runs this query, and returns the amount of objects found.
+	 */
+	public int count()
+	{
+		final int[] out = {0};
+		run(new Sink()
+		{
+			@Override
+			boolean accept(OGLGUIObject object)
+			{
+				out[0]++;
+				return true;
+			}
+		});
+		return out[0];
+	}
+
+	/**
+	 * Runs this query until the first object is found, and returns true if none are found.
+	 */
+	public boolean isEmpty()
+	{
+		return getFirstObject() == null;
+	}
+
+	/**
+	 * Runs this query until the first object is found.
+	 * @return the first object found, or null if none are found.
+	 */
+	public OGLGUIObject getFirstObject()
+	{
+		final OGLGUIObject[] out = {null};
+		run(new Sink()
+		{
+			@Override
+			boolean accept(OGLGUIObject object)
+			{
+				out[0] = object;
+				return false;
+			}
+		});
+		return out[0];
+	}
+
+	/**
+	 * Runs this query, and collects the objects found into a query result.
+	 * @return a new query result.
+	 */
+	public OGLGUIQuery toQuery()
+	{
+		final OGLGUIQuery out = new OGLGUIQuery();
+		run(new Sink()
+		{
+			@Override
+			boolean accept(OGLGUIObject object)
+			{
+				out.add(object);
+				return true;
+			}
+		});
+		return out;
+	}
+
+	// Adds a filtering step.
+	private OGLGUILazyQuery filter(final Filter filter)
+	{
+		return new OGLGUILazyQuery(this, new Step()
+		{
+			@Override
+			Sink bind(final Sink next)
+			{
+				return new Sink()
+				{
+					@Override
+					boolean accept(OGLGUIObject object)
+					{
+						return !filter.test(object) || next.accept(object);
+					}
+				};
+			}
+		});
+	}
+
+	// Runs all steps, in one pass, into the terminal sink.
+	private void run(Sink terminal)
+	{
+		Sink sink = terminal;
+		for (int i = steps.length - 1; i >= 0; i--)
+			sink = steps[i].bind(sink);
+
+		if (sourceGUI != null)
+		{
+			synchronized (sourceGUI)
+			{
+				List<OGLGUIObject> roots = sourceGUI.getRootObjects();
+				for (int i = 0; i < roots.size(); i++)
+					if (!runTree(sink, roots.getByIndex(i)))
+						return;
+			}
+		}
+		else
+		{
+			for (int i = 0; i < sourceQuery.size(); i++)
+				if (!sink.accept(sourceQuery.getObject(i)))
+					return;
+		}
+	}
+
+	// Passes an object and its descendants to a sink, in tree order.
+	private static boolean runTree(Sink sink, OGLGUIObject object)
+	{
+		if (!sink.accept(object))
+			return false;
+		List<OGLGUIObject> children = object.getChildren();
+		for (int i = 0; i < children.size(); i++)
+			if (!runTree(sink, children.getByIndex(i)))
+				return false;
+		return true;
+	}
+
+	/** A step in a lazy query. */
+	private static abstract class Step
+	{
+		/**
+		 * Creates this step's sink for a single run.
+		 * @param next the next step's sink.
+		 */
+		abstract Sink bind(Sink next);
+	}
+
+	/** Receives objects during a run. */
+	private static abstract class Sink
+	{
+		/**
+		 * Accepts an object.
+		 * @return true to keep going, false to stop the run.
+		 */
+		abstract boolean accept(OGLGUIObject object);
+	}
+
+	/** A sink that never passes along the same object twice. */
+	private static abstract class DistinctSink extends Sink
+	{
+		private Sink next;
+		private Hash<OGLGUIObject> seen;
+
+		DistinctSink(Sink next)
+		{
+			this.next = next;
+			this.seen = null;
+		}
+
+		// Passes an object along if it wasn't already.
+		boolean pass(OGLGUIObject object)
+		{
+			if (seen == null)
+				seen = new Hash<OGLGUIObject>();
+			if (seen.contains(object))
+				return true;
+			seen.put(object);
+			return next.accept(object);
+		}
+	}
+
+	/** A test for filtering steps. */
+	private static abstract class Filter
+	{
+		abstract boolean test(OGLGUIObject object);
+	}
+
+}
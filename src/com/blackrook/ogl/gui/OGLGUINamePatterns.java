@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled name patterns, shared by all GUIs and queries.
+ * The most recently used patterns are kept compiled, so that name pattern
+ * queries do not compile the same pattern once per name tested.
+ * @author Matthew Tropiano
+ */
+final class OGLGUINamePatterns
+{
+	/** Maximum amount of compiled patterns kept. */
+	static final int CACHE_SIZE = 256;
+
+	/** Compiled patterns by pattern string, least recently used first. */
+	private static final LinkedHashMap<String, Pattern> CACHE = new LinkedHashMap<String, Pattern>(64, 0.75f, true)
+	{
+		private static final long serialVersionUID = -2866468207436154014L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private OGLGUINamePatterns() {}
+
+	/**
+	 * Returns the compiled pattern for a regex pattern string, compiling it if it isn't cached.
+	 * @param pattern the regex pattern.
+	 * @throws java.util.regex.PatternSyntaxException if the pattern is not a valid regex.
+	 */
+	static Pattern get(String pattern)
+	{
+		synchronized (CACHE)
+		{
+			Pattern out = CACHE.get(pattern);
+			if (out == null)
+				CACHE.put(pattern, out = Pattern.compile(pattern));
+			return out;
+		}
+	}
+
+	/**
+	 * Returns true if a name matches a regex pattern completely,
+	 * like {@link String#matches(String)}.
+	 * @param pattern the regex pattern.
+	 * @param name the name to test.
+	 */
+	static boolean matches(String pattern, String name)
+	{
+		return get(pattern).matcher(name).matches();
+	}
+
+	/**
+	 * Returns the literal text that every name that completely matches a regex pattern must start with.
+	 * This is conservative - if it can't be sure, it returns less text, down to the empty string.
+	 * @param pattern the regex pattern.
+	 * @return the literal prefix, or the empty string if there is none.
+	 */
+	static String getLiteralPrefix(String pattern)
+	{
+		// alternation could skip the prefix entirely.
+		if (pattern.indexOf('|') >= 0)
+			return "";
+
+		StringBuilder sb = new StringBuilder();
+		int i = pattern.startsWith("^") ? 1 : 0;
+		while (i < pattern.length())
+		{
+			char c = pattern.charAt(i);
+			if (c == '\\')
+			{
+				// escaped punctuation is literal, but escaped letters and digits are classes or references.
+				if (i + 1 >= pattern.length() || Character.isLetterOrDigit(pattern.charAt(i + 1)))
+					break;
+				sb.append(pattern.charAt(i + 1));
+				i += 2;
+			}
+			else if (".[]()*+?{}^$".indexOf(c) >= 0)
+				break;
+			else
+			{
+				sb.append(c);
+				i++;
+			}
+		}
+
+		// a quantifier that allows zero of the last character makes it optional.
+		if (sb.length() > 0 && i < pattern.length() && "?*{".indexOf(pattern.charAt(i)) >= 0)
+			sb.setLength(sb.length() - 1);
+		return sb.toString();
+	}
+
+}
@@ -7,9 +7,11 @@
  ******************************************************************************/
 package com.blackrook.ogl.gui;
 
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
 import com.blackrook.commons.hash.Hash;
-import com.blackrook.commons.hash.HashedQueueMap;
-import com.blackrook.commons.linkedlist.Queue;
+import com.blackrook.commons.hash.HashMap;
 import com.blackrook.commons.list.List;
 import com.blackrook.commons.math.geometry.Rectangle2F;
 import com.blackrook.ogl.OGLMesh;
@@ -72,6 +74,80 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	/** Object is shown/hidden. */
 	public static final String EVENT_CHANGE_VISIBLE_STATE = "CHANGE_VISIBLE_STATE";
 
+	/** Event type id for {@link #EVENT_UNKNOWN}. */
+	public static final int EVENT_ID_UNKNOWN = 0;
+	/** Event type id for {@link #EVENT_MOUSE_OVER}. */
+	public static final int EVENT_ID_MOUSE_OVER = 1;
+	/** Event type id for {@link #EVENT_MOUSE_LEAVE}. */
+	public static final int EVENT_ID_MOUSE_LEAVE = 2;
+	/** Event type id for {@link #EVENT_MOUSE_PRESS}. */
+	public static final int EVENT_ID_MOUSE_PRESS = 3;
+	/** Event type id for {@link #EVENT_MOUSE_RELEASE}. */
+	public static final int EVENT_ID_MOUSE_RELEASE = 4;
+	/** Event type id for {@link #EVENT_MOUSE_MOVE}. */
+	public static final int EVENT_ID_MOUSE_MOVE = 5;
+	/** Event type id for {@link #EVENT_MOUSE_DRAG}. */
+	public static final int EVENT_ID_MOUSE_DRAG = 6;
+	/** Event type id for {@link #EVENT_MOUSE_CLICK}. */
+	public static final int EVENT_ID_MOUSE_CLICK = 7;
+	/** Event type id for {@link #EVENT_MOUSE_WHEEL}. */
+	public static final int EVENT_ID_MOUSE_WHEEL = 8;
+	/** Event type id for {@link #EVENT_KEY_PRESS}. */
+	public static final int EVENT_ID_KEY_PRESS = 9;
+	/** Event type id for {@link #EVENT_KEY_RELEASE}. */
+	public static final int EVENT_ID_KEY_RELEASE = 10;
+	/** Event type id for {@link #EVENT_KEY_TYPE}. */
+	public static final int EVENT_ID_KEY_TYPE = 11;
+	/** Event type id for {@link #EVENT_GAMEPAD_PRESS}. */
+	public static final int EVENT_ID_GAMEPAD_PRESS = 12;
+	/** Event type id for {@link #EVENT_GAMEPAD_RELEASE}. */
+	public static final int EVENT_ID_GAMEPAD_RELEASE = 13;
+	/** Event type id for {@link #EVENT_GAMEPAD_AXIS}. */
+	public static final int EVENT_ID_GAMEPAD_AXIS = 14;
+	/** Event type id for {@link #EVENT_GAMEPAD_TAP}. */
+	public static final int EVENT_ID_GAMEPAD_TAP = 15;
+	/** Event type id for {@link #EVENT_FOCUS}. */
+	public static final int EVENT_ID_FOCUS = 16;
+	/** Event type id for {@link #EVENT_BLUR}. */
+	public static final int EVENT_ID_BLUR = 17;
+	/** Event type id for {@link #EVENT_CHANGE_ENABLE_STATE}. */
+	public static final int EVENT_ID_CHANGE_ENABLE_STATE = 18;
+	/** Event type id for {@link #EVENT_CHANGE_VISIBLE_STATE}. */
+	public static final int EVENT_ID_CHANGE_VISIBLE_STATE = 19;
+
+	/** No bound actions. */
+	private static final OGLGUIAction[][] NO_ACTIONS = new OGLGUIAction[0][];
+
+	/** Registered event type names, by id. */
+	private static volatile String[] eventTypeNames = {
+		EVENT_UNKNOWN,
+		EVENT_MOUSE_OVER,
+		EVENT_MOUSE_LEAVE,
+		EVENT_MOUSE_PRESS,
+		EVENT_MOUSE_RELEASE,
+		EVENT_MOUSE_MOVE,
+		EVENT_MOUSE_DRAG,
+		EVENT_MOUSE_CLICK,
+		EVENT_MOUSE_WHEEL,
+		EVENT_KEY_PRESS,
+		EVENT_KEY_RELEASE,
+		EVENT_KEY_TYPE,
+		EVENT_GAMEPAD_PRESS,
+		EVENT_GAMEPAD_RELEASE,
+		EVENT_GAMEPAD_AXIS,
+		EVENT_GAMEPAD_TAP,
+		EVENT_FOCUS,
+		EVENT_BLUR,
+		EVENT_CHANGE_ENABLE_STATE,
+		EVENT_CHANGE_VISIBLE_STATE
+	};
+	/** Amount of registered event types. */
+	private static int eventTypeCount = eventTypeNames.length;
+	/** Map of event type name to id (copy on write, so lookups need no lock). */
+	private static volatile HashMap<String, Integer> eventTypeIds = mapEventTypeIds(eventTypeNames, eventTypeCount);
+	/** Lock for registering event types. */
+	private static final Object EVENT_TYPE_LOCK = new Object();
+
 	/**
 	 * Skin scaling type.
 	 */
@@ -152,15 +228,36 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	
 	/** GUI Theme. */
 	private OGLGUITheme theme;
+	/** Theme key that the cached theme skin was resolved for. */
+	private String themeSkinKey;
+	/** Cached theme skin. */
+	private OGLSkin themeSkin;
+	/** Theme generation that the cached theme skin was resolved in. */
+	private int themeSkinGeneration;
 	
 	/** Object opacity. */
 	private float opacity;
 	
+	/** If true, the cached final color and opacity are up to date. */
+	private boolean finalColorValid;
+	/** Cached final red component. */
+	private float finalRed;
+	/** Cached final green component. */
+	private float finalGreen;
+	/** Cached final blue component. */
+	private float finalBlue;
+	/** Cached final alpha component. */
+	private float finalAlpha;
+	/** Cached final opacity. */
+	private float finalOpacity;
+	
 	/** Scaling type. */
 	private ScaleType scaleType;
 	
-	/** This object's event mapping. */
-	private HashedQueueMap<String, OGLGUIAction> eventMap;
+	/** This object's bound actions, indexed by event type id. */
+	private OGLGUIAction[][] eventActions;
+	/** This object's bound capture actions, indexed by event type id. */
+	private OGLGUIAction[][] captureActions;
 	/** This object's name list. */
 	private Hash<String> names;
 	
@@ -191,13 +288,37 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	/** Render order - set during render. */
 	private int renderOrder;
 	
+	/** Hit index state, set by the GUI's hit index. */
+	int hitIndexState;
+	/** Hit index starting cell, x-axis. */
+	int hitCellX0;
+	/** Hit index starting cell, y-axis. */
+	int hitCellY0;
+	/** Hit index ending cell, x-axis. */
+	int hitCellX1;
+	/** Hit index ending cell, y-axis. */
+	int hitCellY1;
+	
+	/** Is a layout pass waiting for the GUI's current update to end? */
+	boolean pendingLayout;
+	/** Is an absolute bounds update waiting for the GUI's current update to end? */
+	boolean pendingPosition;
+	
+	/** Dense object id while attached to a GUI, or -1 if not attached. See {@link OGLGUIObjectIds}. */
+	int objectId;
+	/** Position among its parent's children (or its GUI's root objects), set by the GUI when it sorts query results. */
+	int childIndex;
+	/** If true, the children's child indices are out of date. */
+	boolean childOrderDirty;
+	
 	/**
 	 * Creates a new GUI object.
 	 */
 	protected OGLGUIObject()
 	{
 		children = new List<OGLGUIObject>();
-		eventMap = new HashedQueueMap<String, OGLGUIAction>(2);
+		eventActions = NO_ACTIONS;
+		captureActions = NO_ACTIONS;
 		names = new Hash<String>(3);
 		color = new OGLColor(1,1,1,1);
 		skin = null;
@@ -210,6 +331,9 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		objectColorCallback = new OGLColor();
 		objectAbsoluteBoundsCallback = new Rectangle2F();
 		renderOrder = -1;
+		objectId = -1;
+		childIndex = -1;
+		childOrderDirty = false;
 		setConstrainToParent(false);
 		setLayout(null);
 		setLayoutAttrib(null);
@@ -238,6 +362,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	/**
 	 * Add a child object to this one and sets a layout attribute to it, as
 	 * though {@link #setLayoutAttrib(Object)}
+	 * If the object is the child of another object, it is removed from it first.
 	 * @return true if added, false otherwise.
 	 */
 	public final boolean addChild(OGLGUIObject obj, Object attrib)
@@ -245,13 +370,22 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		obj.setLayoutAttrib(attrib);
 		if (!children.contains(obj))
 		{
+			if (obj.parentRef != null)
+				obj.parentRef.removeChild(obj);
 			obj.parentRef = this;
 			obj.guiRef = guiRef;
+			obj.invalidateFinalColor();
+			if (guiRef != null)
+				OGLGUITheme.nextGeneration();
 			synchronized (children)
 			{
 				children.add(obj);
+				childOrderDirty = true;
 				if (guiRef != null)
+				{
 					guiRef.addObjectTree(obj);
+					guiRef.invalidateRenderSequence();
+				}
 			}
 			resizeChildren();
 			updateScenePosition();
@@ -268,7 +402,54 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	{
 		return addChild(obj, null);
 	}
-	
+
+	/**
+	 * Adds many child objects to this one at once, laying out and positioning
+	 * this object's children only once, instead of once per child like {@link #addChild(OGLGUIObject)}.
+	 * Like {@link #addChild(OGLGUIObject)}, each object's layout attribute is cleared,
+	 * objects that are children of another object are removed from it first, and
+	 * objects that are already children of this one are skipped.
+	 * @param objects the objects to add.
+	 * @return the amount of objects added.
+	 */
+	public final int addChildren(OGLGUIObject ... objects)
+	{
+		for (OGLGUIObject obj : objects)
+		{
+			obj.setLayoutAttrib(null);
+			if (obj.parentRef != null && obj.parentRef != this)
+				obj.parentRef.removeChild(obj);
+		}
+		
+		int added = 0;
+		synchronized (children)
+		{
+			for (OGLGUIObject obj : objects)
+			{
+				if (children.contains(obj))
+					continue;
+				obj.parentRef = this;
+				obj.guiRef = guiRef;
+				obj.invalidateFinalColor();
+				children.add(obj);
+				childOrderDirty = true;
+				if (guiRef != null)
+					guiRef.addObjectTree(obj);
+				added++;
+			}
+			if (added > 0 && guiRef != null)
+				guiRef.invalidateRenderSequence();
+		}
+		if (added > 0)
+		{
+			if (guiRef != null)
+				OGLGUITheme.nextGeneration();
+			resizeChildren();
+			updateScenePosition();
+		}
+		return added;
+	}
+
 	/**
 	 * Removes a child object from this one.
 	 * @return true if removed, false otherwise.
@@ -279,11 +460,16 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			obj.parentRef = null;
 			obj.guiRef = null;
+			obj.invalidateFinalColor();
 			synchronized (children)
 			{
 				if (guiRef != null)
+				{
 					guiRef.removeObjectTree(obj);
+					guiRef.invalidateRenderSequence();
+				}
 				children.remove(obj);
+				childOrderDirty = true;
 			}
 			resizeChildren();
 			updateScenePosition();
@@ -314,6 +500,9 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			childList.shift(index, index + 1);
 		}
+		invalidateSiblingOrder();
+		if (guiRef != null)
+			guiRef.invalidateRenderSequence();
 	}
 
 	/**
@@ -339,6 +528,9 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			childList.shift(index, end);
 		}
+		invalidateSiblingOrder();
+		if (guiRef != null)
+			guiRef.invalidateRenderSequence();
 	}
 
 	/**
@@ -363,6 +555,9 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			childList.shift(index, index - 1);
 		}
+		invalidateSiblingOrder();
+		if (guiRef != null)
+			guiRef.invalidateRenderSequence();
 	}
 
 	/**
@@ -386,6 +581,18 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			childList.shift(index, 0);
 		}
+		invalidateSiblingOrder();
+		if (guiRef != null)
+			guiRef.invalidateRenderSequence();
+	}
+
+	// Flags the order of this object and its siblings as changed.
+	private void invalidateSiblingOrder()
+	{
+		if (parentRef != null)
+			parentRef.childOrderDirty = true;
+		else if (guiRef != null)
+			guiRef.invalidateRootOrder();
 	}
 
 	// Get child list of this object's parent (or GUI, if top of hierarchy).
@@ -403,6 +610,72 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 			return parent.getChildren();
 	}
 	
+	/**
+	 * Gets the id for an event type name, registering it if it has not been seen before.
+	 * Built-in event types have fixed ids (the <code>EVENT_ID_*</code> constants).
+	 * Ids are only valid for the lifetime of the running program.
+	 * <p>Registered names are never removed, so this should only be used for defining
+	 * or binding event types. Use {@link #findEventTypeId(String)} for lookups.
+	 * @param type the event type name.
+	 * @return the corresponding id, or -1 if type is null.
+	 */
+	public static int getEventTypeId(String type)
+	{
+		int out = findEventTypeId(type);
+		if (out >= 0 || type == null)
+			return out;
+		
+		synchronized (EVENT_TYPE_LOCK)
+		{
+			Integer id = eventTypeIds.get(type);
+			if (id != null)
+				return id;
+			
+			String[] names = eventTypeNames;
+			if (eventTypeCount == names.length)
+				names = Arrays.copyOf(names, names.length * 2);
+			out = eventTypeCount++;
+			names[out] = type;
+			eventTypeNames = names;
+			eventTypeIds = mapEventTypeIds(names, eventTypeCount);
+			return out;
+		}
+	}
+
+	/**
+	 * Gets the id for an event type name, without registering it.
+	 * @param type the event type name.
+	 * @return the corresponding id, or -1 if type is null or not registered.
+	 * @see #getEventTypeId(String)
+	 */
+	public static int findEventTypeId(String type)
+	{
+		if (type == null)
+			return -1;
+		Integer out = eventTypeIds.get(type);
+		return out != null ? out : -1;
+	}
+
+	// Creates a map of event type names to ids.
+	private static HashMap<String, Integer> mapEventTypeIds(String[] names, int count)
+	{
+		HashMap<String, Integer> out = new HashMap<String, Integer>(Math.max(32, count * 2));
+		for (int i = 0; i < count; i++)
+			out.put(names[i], i);
+		return out;
+	}
+
+	/**
+	 * Gets the event type name for an event type id.
+	 * @param typeId the event type id.
+	 * @return the corresponding name, or null if no such id.
+	 */
+	public static String getEventTypeName(int typeId)
+	{
+		String[] names = eventTypeNames;
+		return typeId >= 0 && typeId < names.length ? names[typeId] : null;
+	}
+
 	/**
 	 * Checks if an action has at least one binding.
 	 * @param type the event type.
@@ -410,21 +683,49 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 */
 	public final boolean hasAction(String type)
 	{
-		Queue<OGLGUIAction> q = eventMap.get(type);
-		return q != null && q.size() > 0;
+		return hasAction(findEventTypeId(type));
+	}
+	
+	/**
+	 * Checks if an action has at least one binding.
+	 * @param typeId the event type id.
+	 * @return true if so, false if not.
+	 * @see #getEventTypeId(String)
+	 */
+	public final boolean hasAction(int typeId)
+	{
+		return hasAction(eventActions, typeId);
+	}
+	
+	/**
+	 * Checks if a capture action has at least one binding.
+	 * @param typeId the event type id.
+	 * @return true if so, false if not.
+	 * @see #bindCaptureAction(OGLGUIAction, String...)
+	 */
+	public final boolean hasCaptureAction(int typeId)
+	{
+		return hasAction(captureActions, typeId);
 	}
 	
 	/**
 	 * Adds an action bound to an event type.
 	 * The action is enqueued, so the added action will 
 	 * happen after other actions bound to this event type.
+	 * <p>If the GUI has event propagation enabled, this action is also called
+	 * for events on this object's descendants after their own actions are called.
 	 * @param action the action to bind.
 	 * @param types the event types.
+	 * @see OGLGUI#setEventPropagationEnabled(boolean)
 	 */
 	public final void bindAction(OGLGUIAction action, String ... types)
 	{
 		for (String t : types)
-			eventMap.enqueue(t, action);
+		{
+			int id = getEventTypeId(t);
+			if (id >= 0)
+				eventActions = addAction(eventActions, id, action);
+		}
 	}
 	
 	/**
@@ -436,7 +737,14 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	{
 		boolean out = false;
 		for (String t : types)
-			out = out || eventMap.removeValue(t, action);
+		{
+			OGLGUIAction[][] actions = removeAction(eventActions, findEventTypeId(t), action);
+			if (actions != eventActions)
+			{
+				eventActions = actions;
+				out = true;
+			}
+		}
 		return out;
 	}
 	
@@ -448,38 +756,194 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	{
 		boolean out = false;
 		for (String t : types)
-			out = out || eventMap.removeUsingKey(t) != null;
+		{
+			OGLGUIAction[][] actions = removeAllActions(eventActions, findEventTypeId(t));
+			if (actions != eventActions)
+			{
+				eventActions = actions;
+				out = true;
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Adds a capture action bound to an event type.
+	 * If the GUI has event propagation enabled, capture actions are called
+	 * for events on this object's descendants before the descendants' own actions, 
+	 * starting from the topmost ancestor. Capture actions are not called for 
+	 * events on this object itself.
+	 * @param action the action to bind.
+	 * @param types the event types.
+	 * @see OGLGUI#setEventPropagationEnabled(boolean)
+	 */
+	public final void bindCaptureAction(OGLGUIAction action, String ... types)
+	{
+		for (String t : types)
+		{
+			int id = getEventTypeId(t);
+			if (id >= 0)
+				captureActions = addAction(captureActions, id, action);
+		}
+	}
+	
+	/**
+	 * Removes a capture action bound to an event type.
+	 * @param action the action to unbind.
+	 * @param types the event types.
+	 */
+	public final boolean unbindCaptureAction(OGLGUIAction action, String ... types)
+	{
+		boolean out = false;
+		for (String t : types)
+		{
+			OGLGUIAction[][] actions = removeAction(captureActions, findEventTypeId(t), action);
+			if (actions != captureActions)
+			{
+				captureActions = actions;
+				out = true;
+			}
+		}
 		return out;
 	}
 	
+	/**
+	 * Removes all capture actions bound to event types.
+	 * @param types the event types.
+	 */
+	public final boolean unbindAllCaptureActions(String ... types)
+	{
+		boolean out = false;
+		for (String t : types)
+		{
+			OGLGUIAction[][] actions = removeAllActions(captureActions, findEventTypeId(t));
+			if (actions != captureActions)
+			{
+				captureActions = actions;
+				out = true;
+			}
+		}
+		return out;
+	}
+	
+	// Checks an action table for a binding.
+	private static boolean hasAction(OGLGUIAction[][] actions, int typeId)
+	{
+		return typeId >= 0 && typeId < actions.length && actions[typeId] != null;
+	}
+	
+	// Returns a copy of an action table with an action added (copy on write, so events in progress are not affected).
+	private static OGLGUIAction[][] addAction(OGLGUIAction[][] actions, int typeId, OGLGUIAction action)
+	{
+		if (typeId >= actions.length)
+			actions = Arrays.copyOf(actions, typeId + 1);
+		else
+			actions = actions.clone();
+
+		OGLGUIAction[] queue = actions[typeId];
+		if (queue == null)
+			queue = new OGLGUIAction[]{action};
+		else
+		{
+			queue = Arrays.copyOf(queue, queue.length + 1);
+			queue[queue.length - 1] = action;
+		}
+		actions[typeId] = queue;
+		return actions;
+	}
+	
+	// Returns a copy of an action table with an action removed, or the same table if not bound.
+	private static OGLGUIAction[][] removeAction(OGLGUIAction[][] actions, int typeId, OGLGUIAction action)
+	{
+		if (!hasAction(actions, typeId))
+			return actions;
+		
+		OGLGUIAction[] queue = actions[typeId];
+		int index = -1;
+		for (int i = 0; i < queue.length && index < 0; i++)
+			if (queue[i] == action)
+				index = i;
+		if (index < 0)
+			return actions;
+		
+		OGLGUIAction[] newQueue = null;
+		if (queue.length > 1)
+		{
+			newQueue = new OGLGUIAction[queue.length - 1];
+			System.arraycopy(queue, 0, newQueue, 0, index);
+			System.arraycopy(queue, index + 1, newQueue, index, queue.length - index - 1);
+		}
+		actions = actions.clone();
+		actions[typeId] = newQueue;
+		return actions;
+	}
+	
+	// Returns a copy of an action table with all actions of a type removed, or the same table if none bound.
+	private static OGLGUIAction[][] removeAllActions(OGLGUIAction[][] actions, int typeId)
+	{
+		if (!hasAction(actions, typeId))
+			return actions;
+		actions = actions.clone();
+		actions[typeId] = null;
+		return actions;
+	}
+	
+	// Calls the actions in an action table for an event.
+	private static void callActions(OGLGUIAction[][] actions, OGLGUIEvent event)
+	{
+		int id = event.getTypeId();
+		if (id < 0 || id >= actions.length)
+			return;
+		
+		OGLGUIAction[] queue = actions[id];
+		if (queue == null)
+			return;
+		
+		for (int i = 0; i < queue.length; i++)
+			queue[i].call(event);
+	}
+	
 	/**
 	 * Calls an action on this object.
 	 * @param action the action to call on this object.
 	 */
 	public final void callAction(OGLGUIAction action)
 	{
-		OGLGUIEvent event = new OGLGUIEvent();
-		event.reset();
-		event.setGUI(getGUI());
+		OGLGUI gui = getGUI();
+		OGLGUIEvent event = gui != null ? gui.acquireEvent() : new OGLGUIEvent();
+		event.setGUI(gui);
 		event.setObject(this);
+		event.setTarget(this);
 		event.setType(null);
 		event.setOrigin(Origin.ACTION);
-		action.call(event);
+		try {
+			action.call(event);
+		} finally {
+			if (gui != null)
+				gui.releaseEvent(event);
+		}
 	}
 	
 	/**
 	 * Calls all actions bound to this object by type.
 	 * If no action attached to this object is associated with that name,
-	 * this does nothing and returns false.
+	 * this does nothing.
 	 * @param event the event to pass.
 	 */
 	final void callEvent(OGLGUIEvent event)
 	{
-		if (eventMap.containsKey(event.getType()))
-		{
-			for (OGLGUIAction action : eventMap.get(event.getType()))
-				action.call(event);
-		}
+		callActions(eventActions, event);
+	}
+	
+	/**
+	 * Calls all capture actions bound to this object by type.
+	 * If no capture action attached to this object is associated with that name,
+	 * this does nothing.
+	 * @param event the event to pass.
+	 */
+	final void callCaptureEvent(OGLGUIEvent event)
+	{
+		callActions(captureActions, event);
 	}
 	
 	/**
@@ -489,7 +953,18 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	protected final void fireEvent(String type)
 	{
 		if (guiRef != null)
-			guiRef.fireGUIEvent(this, type);
+			guiRef.fireGUIEvent(this, findEventTypeId(type));
+	}
+	
+	/**
+	 * Fires a non-specific event to the GUI system.
+	 * @param typeId the event type id to fire.
+	 * @see #getEventTypeId(String)
+	 */
+	protected final void fireEvent(int typeId)
+	{
+		if (guiRef != null)
+			guiRef.fireGUIEvent(this, typeId);
 	}
 	
 	/**
@@ -498,8 +973,15 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 */
 	public final void addName(String ... names)
 	{
+		OGLGUI gui = guiRef;
 		for (String n : names)
+		{
+			if (this.names.contains(n))
+				continue;
 			this.names.put(n);
+			if (gui != null)
+				gui.indexName(this, n);
+		}
 	}
 
 	/**
@@ -508,8 +990,15 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 */
 	public final void removeName(String ... names)
 	{
+		OGLGUI gui = guiRef;
 		for (String n : names)
+		{
+			if (!this.names.contains(n))
+				continue;
 			this.names.remove(n);
+			if (gui != null)
+				gui.unindexName(this, n);
+		}
 	}
 
 	/**
@@ -526,8 +1015,11 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 */
 	public final boolean hasNamePattern(String pattern)
 	{
+		if (names.size() == 0)
+			return false;
+		Matcher matcher = OGLGUINamePatterns.get(pattern).matcher("");
 		for (String n : names)
-			if (n.matches(pattern))
+			if (matcher.reset(n).matches())
 				return true;
 		return false;
 	}
@@ -596,6 +1088,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	public void setColor(float red, float green, float blue, float alpha)
 	{
 		this.color.set(red, green, blue, alpha);
+		invalidateFinalColor();
 	}
 
 	/**
@@ -605,6 +1098,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	public void setColor(OGLColor color)
 	{
 		this.color.set(color);
+		invalidateFinalColor();
 	}
 
 	/**
@@ -666,7 +1160,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			if (!visible)
 				releaseFocus();
-			guiRef.fireGUIEvent(this, EVENT_CHANGE_VISIBLE_STATE);
+			guiRef.fireGUIEvent(this, EVENT_ID_CHANGE_VISIBLE_STATE);
 		}
 	}
 	
@@ -684,7 +1178,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		{
 			if (!enabled)
 				releaseFocus();
-			guiRef.fireGUIEvent(this, EVENT_CHANGE_ENABLE_STATE);
+			guiRef.fireGUIEvent(this, EVENT_ID_CHANGE_ENABLE_STATE);
 		}
 	}
 
@@ -801,25 +1295,33 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	@Override
 	public float getRed()
 	{
-		return color.getRed() * (parentRef != null && !parentRef.getColorNotInherited() ? parentRef.getRed() : 1f) ;
+		if (!finalColorValid)
+			refreshFinalColor();
+		return finalRed;
 	}
 
 	@Override
 	public float getGreen()
 	{
-		return color.getGreen() * (parentRef != null && !parentRef.getColorNotInherited() ? parentRef.getGreen() : 1f);
+		if (!finalColorValid)
+			refreshFinalColor();
+		return finalGreen;
 	}
 
 	@Override
 	public float getBlue()
 	{
-		return color.getBlue() * (parentRef != null && !parentRef.getColorNotInherited() ? parentRef.getBlue() : 1f);
+		if (!finalColorValid)
+			refreshFinalColor();
+		return finalBlue;
 	}
 
 	@Override
 	public float getAlpha()
 	{
-		return color.getAlpha() * getFinalOpacity() * (parentRef != null && !parentRef.getColorNotInherited() ? parentRef.getAlpha() : 1f);
+		if (!finalColorValid)
+			refreshFinalColor();
+		return finalAlpha;
 	}
 
 	/**
@@ -827,7 +1329,51 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 */
 	protected float getFinalOpacity()
 	{
-		return opacity * (parentRef != null ? parentRef.getFinalOpacity() : 1f);
+		if (!finalColorValid)
+			refreshFinalColor();
+		return finalOpacity;
+	}
+	
+	/**
+	 * Recalculates the cached final color and opacity from this object's
+	 * color and opacity and its parent's final color and opacity.
+	 */
+	private void refreshFinalColor()
+	{
+		float red = 1f, green = 1f, blue = 1f, alpha = 1f;
+		if (parentRef != null)
+		{
+			finalOpacity = opacity * parentRef.getFinalOpacity();
+			if (!parentRef.colorNotInherited)
+			{
+				red = parentRef.getRed();
+				green = parentRef.getGreen();
+				blue = parentRef.getBlue();
+				alpha = parentRef.getAlpha();
+			}
+		}
+		else
+			finalOpacity = opacity;
+		
+		finalRed = color.getRed() * red;
+		finalGreen = color.getGreen() * green;
+		finalBlue = color.getBlue() * blue;
+		finalAlpha = color.getAlpha() * finalOpacity * alpha;
+		finalColorValid = true;
+	}
+	
+	/**
+	 * Marks the cached final color and opacity of this object and its descendants as out of date.
+	 * An object's cache is never up to date while its parent's isn't, so this stops
+	 * at objects that are already out of date.
+	 */
+	final void invalidateFinalColor()
+	{
+		if (!finalColorValid)
+			return;
+		finalColorValid = false;
+		for (OGLGUIObject child : children)
+			child.invalidateFinalColor();
 	}
 	
 	@Override
@@ -928,6 +1474,10 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 * Returns this object's skin.
 	 * If no skin is set on this, this will take the one from the theme,
 	 * if {@link #getThemeKey()} returns a non-null value.
+	 * The skin taken from the theme is cached until the theme key changes
+	 * (by state, like being focused or disabled), any theme changes, or an object tree
+	 * is added to a GUI. Objects that are not in a GUI look up the theme every time, 
+	 * so building or rearranging detached trees does not flush any caches.
 	 * @see #getThemeKey() 
 	 */
 	@Override
@@ -940,8 +1490,22 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 		
 		if (key != null)
 		{
-			OGLGUITheme t = getTheme();
-			return t != null ? t.getSkin(key) : null;
+			if (guiRef == null)
+			{
+				OGLGUITheme t = getTheme();
+				return t != null ? t.getSkin(key) : null;
+			}
+			
+			int generation = OGLGUITheme.getGeneration();
+			// theme keys are almost always constants, so compare references first.
+			if (generation != themeSkinGeneration || (key != themeSkinKey && !key.equals(themeSkinKey)))
+			{
+				OGLGUITheme t = getTheme();
+				themeSkin = t != null ? t.getSkin(key) : null;
+				themeSkinKey = key;
+				themeSkinGeneration = generation;
+			}
+			return themeSkin;
 		}
 
 		return null;
@@ -1137,6 +1701,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	public void setColorNotInherited(boolean enabled)
 	{
 		this.colorNotInherited = enabled;
+		invalidateFinalColor();
 	}
 
 	/**
@@ -1166,6 +1731,8 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	public void setTheme(OGLGUITheme theme)
 	{
 		this.theme = theme;
+		if (guiRef != null)
+			OGLGUITheme.nextGeneration();
 	}
 	
 	/**
@@ -1191,6 +1758,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	public void setOpacity(float opacity)
 	{
 		this.opacity = opacity;
+		invalidateFinalColor();
 	}
 
 	/**
@@ -1255,21 +1823,39 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 
 	/**
 	 * Calls upon the layouts to resize the children.
+	 * If the GUI that this belongs to is in the middle of an update 
+	 * (see {@link OGLGUI#beginUpdate()}), this is done when the update ends.
 	 */
 	public void resizeChildren()
 	{
+		if (guiRef != null && guiRef.deferLayout(this))
+			return;
+		pendingLayout = false;
+
 		if (layout == null)
 			return;
 		
-		int i = 0;
-		for (OGLGUIObject child : children)
+		OGLGUIProfiler profiler = guiRef != null ? guiRef.getProfiler() : null;
+		long start = 0L;
+		if (profiler != null)
 		{
-			layout.resizeChild(child, i++, children.size());
-			child.correctPosition();
-			child.resizeChildren();
+			profiler.count(OGLGUIProfiler.COUNTER_LAYOUT_PASSES, 1);
+			start = profiler.begin(OGLGUIProfiler.PHASE_LAYOUT);
+		}
+		try {
+			int i = 0;
+			for (OGLGUIObject child : children)
+			{
+				layout.resizeChild(child, i++, children.size());
+				child.correctPosition();
+				child.resizeChildren();
+			}
+			
+			updateScenePosition();
+		} finally {
+			if (profiler != null)
+				profiler.end(OGLGUIProfiler.PHASE_LAYOUT, start);
 		}
-		
-		updateScenePosition();
 	}
 
 	/**
@@ -1358,6 +1944,10 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 	 */
 	protected void updateScenePosition()
 	{
+		if (guiRef != null && guiRef.deferScenePosition(this))
+			return;
+		pendingPosition = false;
+
 		Rectangle2F bounds = getNativeBounds();
 		Rectangle2F parentAbsoluteBounds = parentRef != null ? parentRef.absoluteBounds : null;
 		
@@ -1370,10 +1960,7 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 			obj.updateScenePosition();
 
 		if (guiRef != null)
-		{
-			// Do something here to scene.
-		}
-
+			guiRef.updateHitIndex(this);
 	}
 
 	/**
@@ -1420,45 +2007,6 @@ public abstract class OGLGUIObject implements OGLScene2DElement
 			child.getAllInTree(query);
 	}
 
-	/**
-	 * Gets all name matches in this object's tree.
-	 * @param name the name to look for.
-	 * @param query the output query result.
-	 */
-	final void getNameMatchesInTree(String name, OGLGUIQuery query)
-	{
-		if (hasName(name))
-			query.add(this);
-		for (OGLGUIObject child : getChildren())
-			child.getNameMatchesInTree(name, query);
-	}
-
-	/**
-	 * Gets all name pattern matches in this object's tree.
-	 * @param name the name to look for.
-	 * @param query the output query result.
-	 */
-	final void getNamePatternMatchesInTree(String pattern, OGLGUIQuery query)
-	{
-		if (hasNamePattern(pattern))
-			query.add(this);
-		for (OGLGUIObject child : getChildren())
-			child.getNamePatternMatchesInTree(pattern, query);
-	}
-
-	/**
-	 * Gets all class matches in this object's tree.
-	 * @param clazz the class type to look for.
-	 * @param query the output query result.
-	 */
-	final void getTypeMatchesInTree(Class<?> clazz, OGLGUIQuery query)
-	{
-		if (clazz.isInstance(this))
-			query.add(this);
-		for (OGLGUIObject child : getChildren())
-			child.getTypeMatchesInTree(clazz, query);
-	}
-
 	@Override
 	public String toString()
 	{
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+/**
+ * Hands out dense integer ids to objects attached to GUIs, for use in {@link OGLGUIBitSet}s.
+ * Ids released by detached objects are reused first, so ids stay close to the
+ * amount of objects attached to all GUIs.
+ * <p>Every release changes the id epoch, and released ids are logged by epoch. A set of ids 
+ * made in an earlier epoch only needs to be rebuilt from its objects if it contains an id
+ * released since then (see {@link #wasAnyReleased(OGLGUIBitSet, int, int)}), since that id
+ * may now belong to another object (or none). Releases of ids that aren't in a set don't affect it.
+ * @author Matthew Tropiano
+ */
+final class OGLGUIObjectIds
+{
+	/** Amount of releases kept in the release log. */
+	private static final int LOG_SIZE = 1024;
+
+	/** Released ids, as a stack. */
+	private static int[] freeIds = new int[64];
+	/** Amount of released ids. */
+	private static int freeCount = 0;
+	/** Next never-used id. */
+	private static int nextId = 0;
+	/** Current id epoch. */
+	private static volatile int epoch = 0;
+	/** The last {@value #LOG_SIZE} released ids, indexed by the epoch they were released in. */
+	private static int[] releaseLog = new int[LOG_SIZE];
+
+	private OGLGUIObjectIds() {}
+
+	/**
+	 * Returns an unused id.
+	 */
+	static synchronized int acquire()
+	{
+		return freeCount > 0 ? freeIds[--freeCount] : nextId++;
+	}
+
+	/**
+	 * Releases an id for reuse.
+	 */
+	static synchronized void release(int id)
+	{
+		if (freeCount == freeIds.length)
+		{
+			int[] newIds = new int[freeIds.length * 2];
+			System.arraycopy(freeIds, 0, newIds, 0, freeCount);
+			freeIds = newIds;
+		}
+		freeIds[freeCount++] = id;
+		releaseLog[epoch & (LOG_SIZE - 1)] = id;
+		epoch++;
+	}
+
+	/**
+	 * Returns true if any id in a set was released from one epoch up to (but not including) another,
+	 * or if that can't be told because the releases are no longer in the log.
+	 * @param set the set of ids.
+	 * @param since the epoch that the set was built in.
+	 * @param until an epoch no later than the current one.
+	 */
+	static synchronized boolean wasAnyReleased(OGLGUIBitSet set, int since, int until)
+	{
+		if (until - since > LOG_SIZE)
+			return true;
+		for (int e = since; e != until; e++)
+			if (set.get(releaseLog[e & (LOG_SIZE - 1)]))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the current id epoch.
+	 */
+	static int getEpoch()
+	{
+		return epoch;
+	}
+
+}
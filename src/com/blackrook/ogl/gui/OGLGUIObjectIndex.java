@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+
+import com.blackrook.commons.hash.Hash;
+import com.blackrook.commons.hash.HashMap;
+import com.blackrook.commons.list.List;
+
+/**
+ * An inverted index of all of the objects in a GUI, by name and by class,
+ * so that name and type queries do not need to search every object.
+ * Objects are kept in hashed sets, so the objects found are in no particular order;
+ * the GUI sorts them into tree order (see {@link OGLGUI#addInTreeOrder(List, OGLGUIQuery)}).
+ * @author Matthew Tropiano
+ */
+final class OGLGUIObjectIndex
+{
+	/** Map of name to objects with that name. */
+	private HashMap<String, Hash<OGLGUIObject>> nameMap;
+	/** Map of exact class to objects of that class. */
+	private HashMap<Class<?>, Hash<OGLGUIObject>> typeMap;
+	/** Sorted distinct names, or null if it needs rebuilding. */
+	private String[] sortedNames;
+
+	OGLGUIObjectIndex()
+	{
+		nameMap = new HashMap<String, Hash<OGLGUIObject>>(32);
+		typeMap = new HashMap<Class<?>, Hash<OGLGUIObject>>(16);
+		sortedNames = null;
+	}
+
+	/**
+	 * Adds an object (not its children) to this index, by its current names and class.
+	 */
+	void add(OGLGUIObject object)
+	{
+		for (String name : object.getNameHash())
+			addName(object, name);
+		put(typeMap, object.getClass(), object);
+	}
+
+	/**
+	 * Removes an object (not its children) from this index, by its current names and class.
+	 */
+	void remove(OGLGUIObject object)
+	{
+		for (String name : object.getNameHash())
+			removeName(object, name);
+		take(typeMap, object.getClass(), object);
+	}
+
+	/**
+	 * Adds a name for an object in this index.
+	 */
+	void addName(OGLGUIObject object, String name)
+	{
+		if (put(nameMap, name, object))
+			sortedNames = null;
+	}
+
+	/**
+	 * Removes a name for an object in this index.
+	 */
+	void removeName(OGLGUIObject object, String name)
+	{
+		if (take(nameMap, name, object))
+			sortedNames = null;
+	}
+
+	/**
+	 * Returns the set of objects with a name, or null if no objects have it.
+	 * The set must not be changed.
+	 */
+	Hash<OGLGUIObject> getNameSet(String name)
+	{
+		return nameMap.get(name);
+	}
+
+	/**
+	 * Adds the sets of objects of each class that has, or has a superclass that has,
+	 * a simple name to a list. The sets must not be changed.
+	 * @param typeName the simple class name.
+	 * @param out the output list.
+	 */
+	void getTypeSets(String typeName, List<Hash<OGLGUIObject>> out)
+	{
+		Iterator<Class<?>> it = typeMap.keyIterator();
+		while (it.hasNext())
+		{
+			Class<?> type = it.next();
+			if (OGLGUISelector.isTypeNamed(type, typeName))
+				out.add(typeMap.get(type));
+		}
+	}
+
+	/**
+	 * Adds all objects with a name to a list.
+	 * @param name the name.
+	 * @param out the output list.
+	 */
+	void getByName(String name, List<OGLGUIObject> out)
+	{
+		Hash<OGLGUIObject> set = nameMap.get(name);
+		if (set != null)
+			for (OGLGUIObject object : set)
+				out.add(object);
+	}
+
+	/**
+	 * Adds all objects with a name that matches a pattern to a list.
+	 * Each distinct name is only tested once, and if the pattern starts with
+	 * literal text, only the names that start with that text are tested.
+	 * An object with more than one matching name is added more than once.
+	 * @param pattern the regex pattern.
+	 * @param out the output list.
+	 */
+	void getByPattern(String pattern, List<OGLGUIObject> out)
+	{
+		Matcher matcher = OGLGUINamePatterns.get(pattern).matcher("");
+		String prefix = OGLGUINamePatterns.getLiteralPrefix(pattern);
+		String[] names = getSortedNames();
+		
+		int i = 0;
+		if (prefix.length() > 0)
+		{
+			i = Arrays.binarySearch(names, prefix);
+			if (i < 0)
+				i = -(i + 1);
+		}
+		
+		for (; i < names.length && names[i].startsWith(prefix); i++)
+			if (matcher.reset(names[i]).matches())
+				getByName(names[i], out);
+	}
+
+	/**
+	 * Adds all objects that are instances of a class to a list.
+	 * Each distinct class is only tested once.
+	 * @param clazz the class.
+	 * @param out the output list.
+	 */
+	void getByType(Class<?> clazz, List<OGLGUIObject> out)
+	{
+		Iterator<Class<?>> it = typeMap.keyIterator();
+		while (it.hasNext())
+		{
+			Class<?> type = it.next();
+			if (clazz.isAssignableFrom(type))
+				for (OGLGUIObject object : typeMap.get(type))
+					out.add(object);
+		}
+	}
+
+	// Returns the distinct names, sorted, rebuilding them if the set of names changed.
+	private String[] getSortedNames()
+	{
+		if (sortedNames == null)
+		{
+			String[] out = new String[nameMap.size()];
+			int i = 0;
+			Iterator<String> it = nameMap.keyIterator();
+			while (it.hasNext())
+				out[i++] = it.next();
+			Arrays.sort(out);
+			sortedNames = out;
+		}
+		return sortedNames;
+	}
+
+	// Adds an object to a keyed set. Returns true if the key is new.
+	private static <K> boolean put(HashMap<K, Hash<OGLGUIObject>> map, K key, OGLGUIObject object)
+	{
+		Hash<OGLGUIObject> set = map.get(key);
+		boolean created = set == null;
+		if (created)
+			map.put(key, set = new Hash<OGLGUIObject>(4));
+		set.put(object);
+		return created;
+	}
+
+	// Removes an object from a keyed set, and the set if it is now empty. Returns true if the key was removed.
+	private static <K> boolean take(HashMap<K, Hash<OGLGUIObject>> map, K key, OGLGUIObject object)
+	{
+		Hash<OGLGUIObject> set = map.get(key);
+		if (set == null)
+			return false;
+		set.remove(object);
+		if (set.size() == 0)
+		{
+			map.removeUsingKey(key);
+			return true;
+		}
+		return false;
+	}
+
+}
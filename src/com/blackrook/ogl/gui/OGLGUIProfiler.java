@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.Arrays;
+
+/**
+ * Frame-by-frame timings and counts of what an {@link OGLGUI} does.
+ * Each frame's time per phase (in nanoseconds) and counts are kept in a ring
+ * buffer of the most recent frames, which can be queried for averages, extremes,
+ * and percentiles at any time.
+ * <p>Time spent outside of {@link OGLGUI#display(com.blackrook.ogl.OGLGraphics)}
+ * (handling input that is not queued, for instance) is added to the next frame.
+ * Nested phases of the same type (events fired from actions, layouts of children)
+ * are only timed once, by the outermost phase.
+ * <p>This is NOT THREAD-SAFE - if input is handled on a different thread than rendering,
+ * the GUI should have its input queue enabled (see {@link OGLGUI#setInputQueueEnabled(boolean)}).
+ * @author Matthew Tropiano
+ * @see OGLGUI#setProfilingEnabled(boolean)
+ */
+public final class OGLGUIProfiler
+{
+	/** Phase: the whole frame (display call). */
+	public static final int PHASE_FRAME = 0;
+	/** Phase: handling queued and coalesced input. */
+	public static final int PHASE_INPUT = 1;
+	/** Phase: updating animations. */
+	public static final int PHASE_ANIMATION = 2;
+	/** Phase: creating the render list. */
+	public static final int PHASE_RENDER_LIST = 3;
+	/** Phase: finding the object under the mouse. */
+	public static final int PHASE_HIT_TEST = 4;
+	/** Phase: laying out children. */
+	public static final int PHASE_LAYOUT = 5;
+	/** Phase: calling actions for events. */
+	public static final int PHASE_ACTIONS = 6;
+	/** Amount of phases. */
+	public static final int PHASE_COUNT = 7;
+
+	/** Counter: events fired. */
+	public static final int COUNTER_EVENTS = 0;
+	/** Counter: layout passes. */
+	public static final int COUNTER_LAYOUT_PASSES = 1;
+	/** Counter: objects in the GUI. */
+	public static final int COUNTER_OBJECTS = 2;
+	/** Amount of counters. */
+	public static final int COUNTER_COUNT = 3;
+
+	/** Default amount of frames kept. */
+	public static final int DEFAULT_FRAME_CAPACITY = 256;
+
+	private static final String[] PHASE_NAMES = {
+		"FRAME", "INPUT", "ANIMATION", "RENDER_LIST", "HIT_TEST", "LAYOUT", "ACTIONS"
+	};
+	private static final String[] COUNTER_NAMES = {
+		"EVENTS", "LAYOUT_PASSES", "OBJECTS"
+	};
+
+	/** Phase time samples per frame, [phase][frame]. */
+	private long[][] phaseSamples;
+	/** Counter samples per frame, [counter][frame]. */
+	private long[][] counterSamples;
+	/** Next frame index in the ring buffer. */
+	private int nextFrame;
+	/** Amount of frames in the ring buffer. */
+	private int frameCount;
+	/** Total amount of frames recorded. */
+	private long totalFrameCount;
+
+	/** Current frame's phase times. */
+	private long[] currentPhases;
+	/** Current frame's counts. */
+	private long[] currentCounters;
+	/** Nesting depth per phase. */
+	private int[] phaseDepth;
+
+	/**
+	 * Creates a new profiler that keeps {@value #DEFAULT_FRAME_CAPACITY} frames.
+	 */
+	public OGLGUIProfiler()
+	{
+		this(DEFAULT_FRAME_CAPACITY);
+	}
+
+	/**
+	 * Creates a new profiler.
+	 * @param frameCapacity the amount of recent frames to keep.
+	 * @throws IllegalArgumentException if frameCapacity is less than 1.
+	 */
+	public OGLGUIProfiler(int frameCapacity)
+	{
+		if (frameCapacity < 1)
+			throw new IllegalArgumentException("Frame capacity must be at least 1.");
+		phaseSamples = new long[PHASE_COUNT][frameCapacity];
+		counterSamples = new long[COUNTER_COUNT][frameCapacity];
+		currentPhases = new long[PHASE_COUNT];
+		currentCounters = new long[COUNTER_COUNT];
+		phaseDepth = new int[PHASE_COUNT];
+		reset();
+	}
+
+	/**
+	 * Returns the name of a phase.
+	 * @param phase the phase (PHASE_* constant).
+	 */
+	public static String getPhaseName(int phase)
+	{
+		return PHASE_NAMES[phase];
+	}
+
+	/**
+	 * Returns the name of a counter.
+	 * @param counter the counter (COUNTER_* constant).
+	 */
+	public static String getCounterName(int counter)
+	{
+		return COUNTER_NAMES[counter];
+	}
+
+	/**
+	 * Clears all recorded frames.
+	 */
+	public void reset()
+	{
+		for (long[] samples : phaseSamples)
+			Arrays.fill(samples, 0L);
+		for (long[] samples : counterSamples)
+			Arrays.fill(samples, 0L);
+		Arrays.fill(currentPhases, 0L);
+		Arrays.fill(currentCounters, 0L);
+		nextFrame = 0;
+		frameCount = 0;
+		totalFrameCount = 0L;
+	}
+
+	/**
+	 * Returns the amount of recent frames that can be kept.
+	 */
+	public int getFrameCapacity()
+	{
+		return phaseSamples[0].length;
+	}
+
+	/**
+	 * Returns the amount of recent frames currently kept.
+	 */
+	public int getFrameCount()
+	{
+		return frameCount;
+	}
+
+	/**
+	 * Returns the total amount of frames recorded since creation or the last {@link #reset()}.
+	 */
+	public long getTotalFrameCount()
+	{
+		return totalFrameCount;
+	}
+
+	/**
+	 * Returns the time spent in a phase in the most recent frame, in nanoseconds.
+	 * @param phase the phase (PHASE_* constant).
+	 */
+	public long getLastTime(int phase)
+	{
+		return last(phaseSamples[phase]);
+	}
+
+	/**
+	 * Returns the average time spent in a phase over the recent frames, in nanoseconds.
+	 * @param phase the phase (PHASE_* constant).
+	 */
+	public double getAverageTime(int phase)
+	{
+		return average(phaseSamples[phase]);
+	}
+
+	/**
+	 * Returns the least time spent in a phase over the recent frames, in nanoseconds.
+	 * @param phase the phase (PHASE_* constant).
+	 */
+	public long getMinTime(int phase)
+	{
+		return min(phaseSamples[phase]);
+	}
+
+	/**
+	 * Returns the most time spent in a phase over the recent frames, in nanoseconds.
+	 * @param phase the phase (PHASE_* constant).
+	 */
+	public long getMaxTime(int phase)
+	{
+		return max(phaseSamples[phase]);
+	}
+
+	/**
+	 * Returns a percentile of the time spent in a phase over the recent frames, in nanoseconds.
+	 * @param phase the phase (PHASE_* constant).
+	 * @param percentile the percentile, from 0 to 1 (0.5 is the median, 0.99 is the 99th percentile).
+	 */
+	public long getPercentileTime(int phase, double percentile)
+	{
+		return percentile(phaseSamples[phase], percentile);
+	}
+
+	/**
+	 * Returns a counter's value in the most recent frame.
+	 * @param counter the counter (COUNTER_* constant).
+	 */
+	public long getLastCount(int counter)
+	{
+		return last(counterSamples[counter]);
+	}
+
+	/**
+	 * Returns a counter's average value over the recent frames.
+	 * @param counter the counter (COUNTER_* constant).
+	 */
+	public double getAverageCount(int counter)
+	{
+		return average(counterSamples[counter]);
+	}
+
+	/**
+	 * Returns a counter's highest value over the recent frames.
+	 * @param counter the counter (COUNTER_* constant).
+	 */
+	public long getMaxCount(int counter)
+	{
+		return max(counterSamples[counter]);
+	}
+
+	/**
+	 * Returns a percentile of a counter's values over the recent frames.
+	 * @param counter the counter (COUNTER_* constant).
+	 * @param percentile the percentile, from 0 to 1 (0.5 is the median, 0.99 is the 99th percentile).
+	 */
+	public long getPercentileCount(int counter, double percentile)
+	{
+		return percentile(counterSamples[counter], percentile);
+	}
+
+	/**
+	 * Copies the recent frames' times for a phase into an array, oldest first.
+	 * @param phase the phase (PHASE_* constant).
+	 * @param out the output array. Filled up to its length or the amount of frames, whichever is smaller.
+	 * @return the amount of frames copied.
+	 */
+	public int getTimes(int phase, long[] out)
+	{
+		return copy(phaseSamples[phase], out);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("OGLGUIProfiler ").append(frameCount).append(" frames");
+		for (int i = 0; i < PHASE_COUNT; i++)
+		{
+			sb.append(String.format(" %s avg %.3fms max %.3fms;",
+				PHASE_NAMES[i], getAverageTime(i) / 1000000.0, getMaxTime(i) / 1000000.0));
+		}
+		for (int i = 0; i < COUNTER_COUNT; i++)
+			sb.append(String.format(" %s avg %.1f max %d;", COUNTER_NAMES[i], getAverageCount(i), getMaxCount(i)));
+		return sb.toString();
+	}
+
+	/**
+	 * Starts timing a phase.
+	 * @param phase the phase.
+	 * @return the start time to pass to {@link #end(int, long)}.
+	 */
+	long begin(int phase)
+	{
+		return phaseDepth[phase]++ == 0 ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Stops timing a phase.
+	 * @param phase the phase.
+	 * @param start the start time returned by {@link #begin(int)}.
+	 */
+	void end(int phase, long start)
+	{
+		if (--phaseDepth[phase] == 0)
+			currentPhases[phase] += System.nanoTime() - start;
+	}
+
+	/**
+	 * Adds to a counter for the current frame.
+	 * @param counter the counter.
+	 * @param amount the amount to add.
+	 */
+	void count(int counter, int amount)
+	{
+		currentCounters[counter] += amount;
+	}
+
+	/**
+	 * Sets a counter for the current frame.
+	 * @param counter the counter.
+	 * @param value the value.
+	 */
+	void setCount(int counter, long value)
+	{
+		currentCounters[counter] = value;
+	}
+
+	/**
+	 * Ends the current frame, storing its times and counts.
+	 */
+	void endFrame()
+	{
+		for (int i = 0; i < PHASE_COUNT; i++)
+		{
+			phaseSamples[i][nextFrame] = currentPhases[i];
+			currentPhases[i] = 0L;
+		}
+		for (int i = 0; i < COUNTER_COUNT; i++)
+		{
+			counterSamples[i][nextFrame] = currentCounters[i];
+			currentCounters[i] = 0L;
+		}
+		nextFrame = (nextFrame + 1) % getFrameCapacity();
+		frameCount = Math.min(frameCount + 1, getFrameCapacity());
+		totalFrameCount++;
+	}
+
+	// Index of the oldest frame.
+	private int firstFrame()
+	{
+		return frameCount < getFrameCapacity() ? 0 : nextFrame;
+	}
+
+	private long last(long[] samples)
+	{
+		if (frameCount == 0)
+			return 0L;
+		return samples[(nextFrame + samples.length - 1) % samples.length];
+	}
+
+	private double average(long[] samples)
+	{
+		if (frameCount == 0)
+			return 0.0;
+		long sum = 0L;
+		for (int i = 0, f = firstFrame(); i < frameCount; i++, f = (f + 1) % samples.length)
+			sum += samples[f];
+		return (double)sum / frameCount;
+	}
+
+	private long min(long[] samples)
+	{
+		if (frameCount == 0)
+			return 0L;
+		long out = Long.MAX_VALUE;
+		for (int i = 0, f = firstFrame(); i < frameCount; i++, f = (f + 1) % samples.length)
+			out = Math.min(out, samples[f]);
+		return out;
+	}
+
+	private long max(long[] samples)
+	{
+		if (frameCount == 0)
+			return 0L;
+		long out = Long.MIN_VALUE;
+		for (int i = 0, f = firstFrame(); i < frameCount; i++, f = (f + 1) % samples.length)
+			out = Math.max(out, samples[f]);
+		return out;
+	}
+
+	private long percentile(long[] samples, double percentile)
+	{
+		if (frameCount == 0)
+			return 0L;
+		long[] sorted = new long[frameCount];
+		copy(samples, sorted);
+		Arrays.sort(sorted);
+		int index = (int)Math.round(Math.max(0.0, Math.min(1.0, percentile)) * (frameCount - 1));
+		return sorted[index];
+	}
+
+	private int copy(long[] samples, long[] out)
+	{
+		int amount = Math.min(out.length, frameCount);
+		for (int i = 0, f = firstFrame(); i < amount; i++, f = (f + 1) % samples.length)
+			out[i] = samples[f];
+		return amount;
+	}
+
+}
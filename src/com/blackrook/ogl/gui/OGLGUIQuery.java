@@ -9,6 +9,7 @@ package com.blackrook.ogl.gui;
 
 import java.util.Iterator;
 import java.util.Random;
+import java.util.regex.Matcher;
 
 import com.blackrook.commons.ResettableIterable;
 import com.blackrook.commons.ResettableIterator;
@@ -26,13 +27,21 @@ import com.blackrook.ogl.util.enums.EasingType;
 
 /**
  * The results of a scene query.
+ * <p>Membership of objects attached to a GUI is kept as a compressed bitset of their
+ * object ids, so membership tests and set operations between queries ({@link #getUnion(OGLGUIQuery)}, 
+ * {@link #getIntersection(OGLGUIQuery)}, {@link #getDifference(OGLGUIQuery)}, {@link #getXOr(OGLGUIQuery)}) 
+ * work on whole words of bits at a time. Objects not attached to a GUI are kept in a hash instead.
  * @author Matthew Tropiano
  */
 public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 {
-	/** Hash of objects. */
-	private Hash<OGLGUIObject> objectHash;
-	/** Map of name to object. */
+	/** Set of ids of objects in this query. */
+	private OGLGUIBitSet idSet;
+	/** Id epoch that the id set was built in. */
+	private int idEpoch;
+	/** Hash of objects without ids, or null if none. */
+	private Hash<OGLGUIObject> looseHash;
+	/** Map of name to object, or null if not built yet. */
 	private HashedQueueMap<String, OGLGUIObject> nameMap;
 	/** List of objects. */
 	private List<OGLGUIObject> objectList;
@@ -42,23 +51,134 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	 */
 	OGLGUIQuery()
 	{
-		objectHash = new Hash<OGLGUIObject>(5, 1);
+		idSet = new OGLGUIBitSet();
+		idEpoch = OGLGUIObjectIds.getEpoch();
+		looseHash = null;
 		objectList = new List<OGLGUIObject>(5);
-		nameMap = new HashedQueueMap<String, OGLGUIObject>(5, 1);
+		nameMap = null;
 	}
 	
 	/** Adds an object to the result, but only if it isn't in the set. */
 	final void add(OGLGUIObject object)
 	{
-		if (object != null && !objectHash.contains(object))
+		if (object != null && !contains(object))
 		{
-			objectHash.put(object);
 			objectList.add(object);
-			for (String name : object.getNameHash())
-				nameMap.enqueue(name, object);
+			mark(object);
+			if (nameMap != null)
+				mapNames(object);
 		}
 	}
 	
+	/**
+	 * Returns true if an object is in this query.
+	 */
+	public boolean contains(OGLGUIObject object)
+	{
+		validateIds();
+		int id = object.objectId;
+		return (id >= 0 && idSet.get(id)) || (looseHash != null && looseHash.contains(object));
+	}
+	
+	/** Adds an object to the membership set by id, or to the loose hash if it has no id. */
+	private void mark(OGLGUIObject object)
+	{
+		int id = object.objectId;
+		if (id >= 0)
+			idSet.set(id);
+		else
+		{
+			if (looseHash == null)
+				looseHash = new Hash<OGLGUIObject>(5, 1);
+			looseHash.put(object);
+		}
+	}
+	
+	/** Rebuilds the membership set if any of its ids were released since it was last checked. */
+	private void validateIds()
+	{
+		int epoch = OGLGUIObjectIds.getEpoch();
+		if (epoch == idEpoch)
+			return;
+		if (OGLGUIObjectIds.wasAnyReleased(idSet, idEpoch, epoch))
+		{
+			idSet = new OGLGUIBitSet();
+			looseHash = null;
+			for (int i = 0; i < objectList.size(); i++)
+				mark(objectList.getByIndex(i));
+		}
+		idEpoch = epoch;
+	}
+	
+	/**
+	 * Combines this query with another.
+	 * The objects in this query come first, in order, followed by the other query's objects, in order.
+	 * @param query the other query.
+	 * @param operation the {@link OGLGUIBitSet} operation.
+	 */
+	private OGLGUIQuery combine(OGLGUIQuery query, int operation)
+	{
+		validateIds();
+		query.validateIds();
+		boolean withOther = operation == OGLGUIBitSet.OR || operation == OGLGUIBitSet.XOR;
+		OGLGUIQuery out = new OGLGUIQuery();
+		
+		if (looseHash != null || query.looseHash != null || idEpoch != query.idEpoch)
+		{
+			boolean keepContained = operation == OGLGUIBitSet.OR || operation == OGLGUIBitSet.AND;
+			for (int i = 0; i < objectList.size(); i++)
+			{
+				OGLGUIObject object = objectList.getByIndex(i);
+				if (operation == OGLGUIBitSet.OR || query.contains(object) == keepContained)
+					out.add(object);
+			}
+			if (withOther) for (int i = 0; i < query.objectList.size(); i++)
+			{
+				OGLGUIObject object = query.objectList.getByIndex(i);
+				if (!contains(object))
+					out.add(object);
+			}
+			return out;
+		}
+		
+		// every object has an id - combine the sets a word at a time, then pick out the objects.
+		OGLGUIBitSet bits = OGLGUIBitSet.combine(idSet, query.idSet, operation);
+		for (int i = 0; i < objectList.size(); i++)
+		{
+			OGLGUIObject object = objectList.getByIndex(i);
+			if (bits.get(object.objectId))
+				out.objectList.add(object);
+		}
+		if (withOther) for (int i = 0; i < query.objectList.size(); i++)
+		{
+			OGLGUIObject object = query.objectList.getByIndex(i);
+			if (bits.get(object.objectId) && !idSet.get(object.objectId))
+				out.objectList.add(object);
+		}
+		out.idSet = bits;
+		out.idEpoch = idEpoch;
+		return out;
+	}
+	
+	/** Returns the map of name to object, building it the first time it is needed. */
+	private HashedQueueMap<String, OGLGUIObject> getNameMap()
+	{
+		if (nameMap == null)
+		{
+			nameMap = new HashedQueueMap<String, OGLGUIObject>(5, 1);
+			for (int i = 0; i < objectList.size(); i++)
+				mapNames(objectList.getByIndex(i));
+		}
+		return nameMap;
+	}
+	
+	/** Adds an object's names to the name map. */
+	private void mapNames(OGLGUIObject object)
+	{
+		for (String name : object.getNameHash())
+			nameMap.enqueue(name, object);
+	}
+	
 	/**
 	 * Returns the amount of objects in this query.
 	 */
@@ -81,6 +201,17 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 		return objectList.iterator();
 	}
 
+	/**
+	 * Returns a lazy query that starts with the objects in this query.
+	 * Selectors chained on the lazy query run in one pass when its results are asked for,
+	 * instead of building a new query result per selector.
+	 * @return a new lazy query.
+	 */
+	public OGLGUILazyQuery lazy()
+	{
+		return new OGLGUILazyQuery(this);
+	}
+
 	/**
 	 * Wraps a set of objects in a new query, where its contents
 	 * consist of the provided objects, in the same order.
@@ -207,7 +338,7 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	{
 		OGLGUIQuery out = this;
 		for (String name : names)
-			 out = wrap(out.nameMap.get(name));
+			 out = wrap(out.getNameMap().get(name));
 		return out;
 	}
 
@@ -219,17 +350,33 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	public OGLGUIQuery getByPattern(String pattern)
 	{
 		OGLGUIQuery out = new OGLGUIQuery();
-		Iterator<String> it = nameMap.keyIterator();
+		Matcher matcher = OGLGUINamePatterns.get(pattern).matcher("");
+		HashedQueueMap<String, OGLGUIObject> map = getNameMap();
+		Iterator<String> it = map.keyIterator();
 		String name = null;
 		while (it.hasNext())
 		{
 			name = it.next();
-			if (name.matches(pattern)) for (OGLGUIObject object : nameMap.get(name))
+			if (matcher.reset(name).matches()) for (OGLGUIObject object : map.get(name))
 				out.add(object);
 		}
 		return out;
 	}
 	
+	/**
+	 * Gets all GUI Objects in this query that match a CSS-like selector.
+	 * @param selector the selector.
+	 * @return a new query result.
+	 * @throws IllegalArgumentException if the selector can't be parsed.
+	 * @see OGLGUI#select(String)
+	 */
+	public OGLGUIQuery getBySelector(String selector)
+	{
+		OGLGUIQuery out = new OGLGUIQuery();
+		OGLGUISelector.get(selector).select(this, out);
+		return out;
+	}
+	
 	/**
 	 * Gets a new query result of all objects in the query with the same class.
 	 * @param clazz the class type to scan for.
@@ -361,12 +508,7 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	 */
 	public OGLGUIQuery getUnion(OGLGUIQuery query)
 	{
-		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject object : this)
-			out.add(object);
-		for (OGLGUIObject object : query)
-			out.add(object);
-		return out;
+		return combine(query, OGLGUIBitSet.OR);
 	}
 
 	/**
@@ -376,11 +518,7 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	 */
 	public OGLGUIQuery getIntersection(OGLGUIQuery query)
 	{
-		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject object : this)
-			if (query.objectHash.contains(object))
-				out.add(object);
-		return out;
+		return combine(query, OGLGUIBitSet.AND);
 	}
 
 	/**
@@ -390,11 +528,7 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	 */
 	public OGLGUIQuery getDifference(OGLGUIQuery query)
 	{
-		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject object : this)
-			if (!query.objectHash.contains(object))
-				out.add(object);
-		return out;
+		return combine(query, OGLGUIBitSet.AND_NOT);
 	}
 
 	/**
@@ -404,14 +538,7 @@ public final class OGLGUIQuery implements ResettableIterable<OGLGUIObject>
 	 */
 	public OGLGUIQuery getXOr(OGLGUIQuery query)
 	{
-		OGLGUIQuery out = new OGLGUIQuery();
-		for (OGLGUIObject object : this)
-			if (!query.objectHash.contains(object))
-				out.add(object);
-		for (OGLGUIObject object : query)
-			if (!this.objectHash.contains(object))
-				out.add(object);
-		return out;
+		return combine(query, OGLGUIBitSet.XOR);
 	}
 
 	/**
@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.blackrook.commons.hash.Hash;
+import com.blackrook.commons.list.List;
+import com.blackrook.ogl.gui.object.OGLGUIToggleable;
+
+/**
+ * A compiled object selector, parsed from a CSS-like selector string.
+ * <p>A selector is one or more comma-separated selector chains. A chain is one or more
+ * compound selectors separated by combinators: whitespace (descendant of) or <code>&gt;</code> (child of).
+ * A compound selector is an optional type, followed by any amount of names and states:
+ * <ul>
+ * <li><code>Type</code> - the object's class, or one of its superclasses, has this simple name. <code>*</code> is any type.</li>
+ * <li><code>.name</code> - the object has this name (see {@link OGLGUIObject#addName(String...)}).
+ * Unquoted names can only contain letters, digits, <code>_</code>, <code>-</code> and <code>$</code>.
+ * Other names can be quoted with <code>"</code> or <code>'</code>, as in <code>."ok.button"</code>, 
+ * where a backslash includes the next character as-is.</li>
+ * <li><code>:state</code> or <code>[state]</code> - the object is in a state: <code>visible</code>, <code>hidden</code>,
+ * <code>enabled</code>, <code>disabled</code>, <code>focused</code>, <code>animating</code>, <code>oncamera</code>,
+ * <code>set</code>, <code>unset</code> (toggleable objects), <code>root</code>, <code>empty</code> (no children),
+ * <code>first-child</code>, or <code>last-child</code>.</li>
+ * </ul>
+ * For example: <code>OGLGUIFrame &gt; .content OGLGUILabel[visible]:focused</code>.
+ * <p>Matches are returned in tree order (see {@link OGLGUI#addInTreeOrder(List, OGLGUIQuery)}).
+ * <p>Compiled selectors are immutable and cached by selector string.
+ * @author Matthew Tropiano
+ */
+final class OGLGUISelector
+{
+	/** Maximum amount of compiled selectors kept. */
+	static final int CACHE_SIZE = 128;
+
+	/** Compiled selectors by selector string, least recently used first. */
+	private static final LinkedHashMap<String, OGLGUISelector> CACHE = new LinkedHashMap<String, OGLGUISelector>(32, 0.75f, true)
+	{
+		private static final long serialVersionUID = 3398419650916101346L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, OGLGUISelector> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private static final int STATE_VISIBLE = 0;
+	private static final int STATE_HIDDEN = 1;
+	private static final int STATE_ENABLED = 2;
+	private static final int STATE_DISABLED = 3;
+	private static final int STATE_FOCUSED = 4;
+	private static final int STATE_ANIMATING = 5;
+	private static final int STATE_ON_CAMERA = 6;
+	private static final int STATE_SET = 7;
+	private static final int STATE_UNSET = 8;
+	private static final int STATE_ROOT = 9;
+	private static final int STATE_EMPTY = 10;
+	private static final int STATE_FIRST_CHILD = 11;
+	private static final int STATE_LAST_CHILD = 12;
+
+	/** State names, by state. */
+	private static final String[] STATE_NAMES = {
+		"visible", "hidden", "enabled", "disabled", "focused", "animating", "oncamera",
+		"set", "unset", "root", "empty", "first-child", "last-child"
+	};
+
+	/** Combinator: descendant. */
+	private static final int DESCENDANT = 0;
+	/** Combinator: child. */
+	private static final int CHILD = 1;
+
+	/** The source selector string. */
+	private String source;
+	/** Selector chains. */
+	private Chain[] chains;
+
+	// Parses a selector.
+	private OGLGUISelector(String source)
+	{
+		this.source = source;
+		this.chains = new Parser(source).parse();
+	}
+
+	/**
+	 * Returns the compiled selector for a selector string, compiling it if it isn't cached.
+	 * @param selector the selector string.
+	 * @throws IllegalArgumentException if the selector can't be parsed.
+	 */
+	static OGLGUISelector get(String selector)
+	{
+		synchronized (CACHE)
+		{
+			OGLGUISelector out = CACHE.get(selector);
+			if (out == null)
+				CACHE.put(selector, out = new OGLGUISelector(selector));
+			return out;
+		}
+	}
+
+	/**
+	 * Returns true if an object matches this selector.
+	 */
+	boolean matches(OGLGUIObject object)
+	{
+		for (Chain chain : chains)
+			if (chain.matches(object, chain.parts.length - 1))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Adds all of the objects in a GUI that match this selector to a list, in no particular order.
+	 * An object may be added more than once, if it matches more than one chain.
+	 * Chains whose last compound selector has a name or type get their candidates
+	 * from the GUI's index. The rest are found in one walk of the object trees.
+	 * @param roots the GUI's root objects.
+	 * @param index the GUI's object index.
+	 * @param out the output list.
+	 */
+	void select(List<OGLGUIObject> roots, OGLGUIObjectIndex index, List<OGLGUIObject> out)
+	{
+		boolean walk = false;
+		for (Chain chain : chains)
+		{
+			Compound last = chain.parts[chain.parts.length - 1];
+			if (last.names.length > 0)
+			{
+				Hash<OGLGUIObject> candidates = index.getNameSet(last.names[0]);
+				if (candidates != null)
+					for (OGLGUIObject object : candidates)
+						if (chain.matches(object, chain.parts.length - 1))
+							out.add(object);
+			}
+			else if (last.typeName != null)
+			{
+				List<Hash<OGLGUIObject>> sets = new List<Hash<OGLGUIObject>>(4);
+				index.getTypeSets(last.typeName, sets);
+				for (int i = 0; i < sets.size(); i++)
+					for (OGLGUIObject object : sets.getByIndex(i))
+						if (chain.matches(object, chain.parts.length - 1))
+							out.add(object);
+			}
+			else
+				walk = true;
+		}
+
+		if (walk)
+			for (int i = 0; i < roots.size(); i++)
+				selectTree(roots.getByIndex(i), out);
+	}
+
+	/**
+	 * Adds all of the objects in a query that match this selector to another query.
+	 */
+	void select(OGLGUIQuery query, OGLGUIQuery out)
+	{
+		for (int i = 0; i < query.size(); i++)
+		{
+			OGLGUIObject object = query.getObject(i);
+			if (matches(object))
+				out.add(object);
+		}
+	}
+
+	// Walks a tree, adding matches.
+	private void selectTree(OGLGUIObject object, List<OGLGUIObject> out)
+	{
+		if (matches(object))
+			out.add(object);
+		List<OGLGUIObject> children = object.getChildren();
+		for (int i = 0; i < children.size(); i++)
+			selectTree(children.getByIndex(i), out);
+	}
+
+	/**
+	 * Returns true if a class or one of its superclasses has a simple name.
+	 */
+	static boolean isTypeNamed(Class<?> type, String name)
+	{
+		for (Class<?> c = type; c != null; c = c.getSuperclass())
+			if (c.getSimpleName().equals(name))
+				return true;
+		return false;
+	}
+
+	@Override
+	public String toString()
+	{
+		return source;
+	}
+
+	/** A chain of compound selectors and combinators. */
+	private static class Chain
+	{
+		/** Compound selectors, left to right. */
+		Compound[] parts;
+		/** Combinators between compound selectors: combinators[i] is between parts[i] and parts[i+1]. */
+		int[] combinators;
+
+		Chain(Compound[] parts, int[] combinators)
+		{
+			this.parts = parts;
+			this.combinators = combinators;
+		}
+
+		// Matches right to left, from a part index.
+		boolean matches(OGLGUIObject object, int index)
+		{
+			if (!parts[index].matches(object))
+				return false;
+			if (index == 0)
+				return true;
+
+			OGLGUIObject parent = object.getParent();
+			if (combinators[index - 1] == CHILD)
+				return parent != null && matches(parent, index - 1);
+
+			for (; parent != null; parent = parent.getParent())
+				if (matches(parent, index - 1))
+					return true;
+			return false;
+		}
+	}
+
+	/** A type, names, and states that must all match. */
+	private static class Compound
+	{
+		/** Type simple name, or null for any type. */
+		String typeName;
+		/** Names. */
+		String[] names;
+		/** States. */
+		int[] states;
+
+		Compound(String typeName, String[] names, int[] states)
+		{
+			this.typeName = typeName;
+			this.names = names;
+			this.states = states;
+		}
+
+		boolean matches(OGLGUIObject object)
+		{
+			if (typeName != null && !isTypeNamed(object.getClass(), typeName))
+				return false;
+			for (String name : names)
+				if (!object.hasName(name))
+					return false;
+			for (int state : states)
+				if (!inState(object, state))
+					return false;
+			return true;
+		}
+
+		private static boolean inState(OGLGUIObject object, int state)
+		{
+			switch (state)
+			{
+				case STATE_VISIBLE:
+					return object.isVisible();
+				case STATE_HIDDEN:
+					return !object.isVisible();
+				case STATE_ENABLED:
+					return object.isEnabled();
+				case STATE_DISABLED:
+					return !object.isEnabled();
+				case STATE_FOCUSED:
+					return object.isFocused();
+				case STATE_ANIMATING:
+					return object.isAnimating();
+				case STATE_ON_CAMERA:
+					return object.isOnCamera();
+				case STATE_SET:
+					return object instanceof OGLGUIToggleable && ((OGLGUIToggleable)object).isSet();
+				case STATE_UNSET:
+					return object instanceof OGLGUIToggleable && !((OGLGUIToggleable)object).isSet();
+				case STATE_ROOT:
+					return object.getParent() == null;
+				case STATE_EMPTY:
+					return object.getChildren().isEmpty();
+				case STATE_FIRST_CHILD:
+				{
+					OGLGUIObject parent = object.getParent();
+					return parent != null && parent.getChildren().getByIndex(0) == object;
+				}
+				case STATE_LAST_CHILD:
+				{
+					OGLGUIObject parent = object.getParent();
+					if (parent == null)
+						return false;
+					List<OGLGUIObject> siblings = parent.getChildren();
+					return siblings.getByIndex(siblings.size() - 1) == object;
+				}
+				default:
+					return false;
+			}
+		}
+	}
+
+	/** Selector string parser. */
+	private static class Parser
+	{
+		private String text;
+		private int pos;
+
+		Parser(String text)
+		{
+			this.text = text;
+			this.pos = 0;
+		}
+
+		Chain[] parse()
+		{
+			List<Chain> out = new List<Chain>(2);
+			skipSpace();
+			out.add(parseChain());
+			while (pos < text.length())
+			{
+				expect(',');
+				skipSpace();
+				out.add(parseChain());
+			}
+			Chain[] chains = new Chain[out.size()];
+			out.toArray(chains);
+			return chains;
+		}
+
+		private Chain parseChain()
+		{
+			List<Compound> parts = new List<Compound>(4);
+			List<Integer> combinators = new List<Integer>(4);
+			parts.add(parseCompound());
+			while (true)
+			{
+				boolean space = skipSpace();
+				if (pos >= text.length() || text.charAt(pos) == ',')
+					break;
+				if (text.charAt(pos) == '>')
+				{
+					pos++;
+					skipSpace();
+					combinators.add(CHILD);
+				}
+				else if (space)
+					combinators.add(DESCENDANT);
+				else
+					throw error("Expected combinator");
+				parts.add(parseCompound());
+			}
+
+			Compound[] partArray = new Compound[parts.size()];
+			parts.toArray(partArray);
+			int[] combinatorArray = new int[combinators.size()];
+			for (int i = 0; i < combinatorArray.length; i++)
+				combinatorArray[i] = combinators.getByIndex(i);
+			return new Chain(partArray, combinatorArray);
+		}
+
+		private Compound parseCompound()
+		{
+			String typeName = null;
+			List<String> names = new List<String>(2);
+			List<Integer> states = new List<Integer>(2);
+
+			boolean any = false;
+			if (pos < text.length() && text.charAt(pos) == '*')
+			{
+				pos++;
+				any = true;
+			}
+			else if (pos < text.length() && isIdentifierChar(text.charAt(pos)))
+			{
+				typeName = parseIdentifier();
+				any = true;
+			}
+
+			while (pos < text.length())
+			{
+				char c = text.charAt(pos);
+				if (c == '.')
+				{
+					pos++;
+					names.add(parseName());
+				}
+				else if (c == ':')
+				{
+					pos++;
+					states.add(parseState());
+				}
+				else if (c == '[')
+				{
+					pos++;
+					skipSpace();
+					states.add(parseState());
+					skipSpace();
+					expect(']');
+				}
+				else
+					break;
+				any = true;
+			}
+			if (!any)
+				throw error("Expected selector");
+
+			String[] nameArray = new String[names.size()];
+			names.toArray(nameArray);
+			int[] stateArray = new int[states.size()];
+			for (int i = 0; i < stateArray.length; i++)
+				stateArray[i] = states.getByIndex(i);
+			return new Compound(typeName, nameArray, stateArray);
+		}
+
+		private int parseState()
+		{
+			int start = pos;
+			String name = parseIdentifier();
+			for (int i = 0; i < STATE_NAMES.length; i++)
+				if (STATE_NAMES[i].equalsIgnoreCase(name))
+					return i;
+			pos = start;
+			throw error("Unknown state \"" + name + "\"");
+		}
+
+		private String parseIdentifier()
+		{
+			int start = pos;
+			while (pos < text.length() && isIdentifierChar(text.charAt(pos)))
+				pos++;
+			if (start == pos)
+				throw error("Expected identifier");
+			return text.substring(start, pos);
+		}
+
+		// Parses an identifier or a quoted name.
+		private String parseName()
+		{
+			if (pos >= text.length() || (text.charAt(pos) != '"' && text.charAt(pos) != '\''))
+				return parseIdentifier();
+			
+			char quote = text.charAt(pos++);
+			StringBuilder sb = new StringBuilder();
+			while (true)
+			{
+				if (pos >= text.length())
+					throw error("Unterminated quoted name");
+				char c = text.charAt(pos++);
+				if (c == quote)
+					break;
+				if (c == '\\')
+				{
+					if (pos >= text.length())
+						throw error("Unterminated quoted name");
+					c = text.charAt(pos++);
+				}
+				sb.append(c);
+			}
+			return sb.toString();
+		}
+
+		private static boolean isIdentifierChar(char c)
+		{
+			return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '$';
+		}
+
+		// Skips whitespace, returns true if any was skipped.
+		private boolean skipSpace()
+		{
+			int start = pos;
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+				pos++;
+			return pos > start;
+		}
+
+		private void expect(char c)
+		{
+			if (pos >= text.length() || text.charAt(pos) != c)
+				throw error("Expected '" + c + "'");
+			pos++;
+		}
+
+		private IllegalArgumentException error(String message)
+		{
+			return new IllegalArgumentException(message + " at index " + pos + " in selector \"" + text + "\".");
+		}
+	}
+
+}
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package com.blackrook.ogl.gui;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.blackrook.commons.hash.HashMap;
 import com.blackrook.ogl.util.OGLSkin;
 
@@ -16,6 +18,12 @@ import com.blackrook.ogl.util.OGLSkin;
  */
 public class OGLGUITheme
 {
+	/** 
+	 * Theme generation, changed whenever any theme's contents or any object's theme changes.
+	 * Objects cache the skins that they resolve from themes until this changes.
+	 */
+	private static final AtomicInteger GENERATION = new AtomicInteger(0);
+	
 	/** Theme name. */
 	protected String name;
 	/** Key map. */
@@ -43,6 +51,7 @@ public class OGLGUITheme
 			skinMap.removeUsingKey(key);
 		else
 			skinMap.put(key, skin);
+		nextGeneration();
 	}
 	
 	/**
@@ -57,6 +66,7 @@ public class OGLGUITheme
 			skinMap.removeUsingKey(key);
 		else
 			skinMap.put(key, font);
+		nextGeneration();
 	}
 	
 	/**
@@ -81,4 +91,21 @@ public class OGLGUITheme
 		return obj != null && obj instanceof OGLGUIFontType ? (OGLGUIFontType)obj : null;
 	}
 	
+	/**
+	 * Returns the current theme generation.
+	 */
+	static int getGeneration()
+	{
+		return GENERATION.get();
+	}
+	
+	/**
+	 * Changes the theme generation, so that all cached skins are resolved again.
+	 * Subclasses that change {@link #skinMap} directly should call this afterward.
+	 */
+	protected static void nextGeneration()
+	{
+		GENERATION.incrementAndGet();
+	}
+	
 }
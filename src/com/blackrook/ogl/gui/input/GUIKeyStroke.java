@@ -43,6 +43,25 @@ public class GUIKeyStroke implements GUIKeyTables
 	/** Is this a key release? */
 	private boolean flag;
 	
+	/**
+	 * Packs a keystroke's fields into a single long value, for lookups that 
+	 * should not create a keystroke object.
+	 * Two keystrokes are equal if and only if their packed values are equal.
+	 * @param inputType the input type (GUIKeyStroke.INPUT_*).
+	 * @param keyMask the key mask (GUIKeyStroke.MASK_*).
+	 * @param keyPress the key press (OGLInputContants.*).
+	 * @param flag if keyboard key, this is a release. If a gamepad axis tap: if true, positive axis, if false, negative.
+	 * @return the packed keystroke.
+	 * @see #getPackedKey()
+	 */
+	public static long pack(int inputType, int keyMask, int keyPress, boolean flag)
+	{
+		return ((long)(inputType & 0x7f) << 56)
+			| ((flag ? 1L : 0L) << 48)
+			| ((long)(keyMask & 0xffff) << 32)
+			| (keyPress & 0xffffffffL);
+	}
+	
 	/**
 	 * Creates a keystroke.
 	 * @param inputType the input type.
@@ -245,6 +264,48 @@ public class GUIKeyStroke implements GUIKeyTables
 		return new GUIKeyStroke(inputType, keyMask, keyPress, flag);
 	}
 
+	/**
+	 * Returns this keystroke's input type (GUIKeyStroke.INPUT_*).
+	 */
+	public int getInputType()
+	{
+		return inputType;
+	}
+	
+	/**
+	 * Returns this keystroke's key mask (GUIKeyStroke.MASK_*).
+	 */
+	public int getKeyMask()
+	{
+		return keyMask;
+	}
+	
+	/**
+	 * Returns this keystroke's key press, button, or axis (OGLInputContants.*).
+	 */
+	public int getKeyPress()
+	{
+		return keyPress;
+	}
+	
+	/**
+	 * Returns this keystroke's flag. If keyboard key or gamepad button, this is a release.
+	 * If a gamepad axis tap: if true, positive axis, if false, negative.
+	 */
+	public boolean getFlag()
+	{
+		return flag;
+	}
+	
+	/**
+	 * Returns this keystroke packed into a single long value.
+	 * @see #pack(int, int, int, boolean)
+	 */
+	public long getPackedKey()
+	{
+		return pack(inputType, keyMask, keyPress, flag);
+	}
+	
 	@Override
 	public int hashCode()
 	{
@@ -90,7 +90,7 @@ public class OGLGUICycler<T extends Object> extends OGLGUILabel implements OGLGU
 				setText(String.valueOf(model.getValueByIndex(currentIndex)));
 			else
 				setText("");
-			fireEvent(EVENT_VALUE_CHANGE);
+			fireEvent(EVENT_ID_VALUE_CHANGE);
 		}
 	}
 
@@ -7,12 +7,14 @@
  ******************************************************************************/
 package com.blackrook.ogl.gui.object;
 
-import com.blackrook.commons.linkedlist.Queue;
+import java.util.Arrays;
+
 import com.blackrook.commons.math.geometry.Rectangle2F;
 import com.blackrook.ogl.enums.GeometryType;
 import com.blackrook.ogl.gui.OGLGUI;
 import com.blackrook.ogl.gui.OGLGUIFont;
 import com.blackrook.ogl.gui.OGLGUIFontType;
+import com.blackrook.ogl.gui.OGLGUIKernedFontType;
 import com.blackrook.ogl.gui.OGLGUIObject;
 import com.blackrook.ogl.gui.OGLGUITheme;
 import com.blackrook.ogl.gui.OGLGUIFontType.Directionality;
@@ -101,6 +103,14 @@ public class OGLGUILabel extends OGLGUIObject
 	private PolygonMesh textMesh;
 	/** The polygon data to render the text. */
 	private MeshView textMeshView;
+	/** Amount of character quads that the mesh can hold. */
+	private int meshCapacity;
+	/** Amount of character quads in the mesh that are in use. */
+	private int meshQuads;
+	/** The corners written to each quad in the mesh (x0, y0, x1, y1). */
+	private float[] meshCorners;
+	/** The texture coordinates written to each quad in the mesh (s0, t0, s1, t1). */
+	private float[] meshTexCoords;
 	
 	/**
 	 * Creates a new GUI Text object.
@@ -365,8 +375,7 @@ public class OGLGUILabel extends OGLGUIObject
 	public void setStartingLine(int startingLine)
 	{
 		this.startingLine = startingLine;
-		textMesh = constructMesh();
-		textMeshView = textMesh.getView();
+		updateMesh();
 	}
 	
 	@Override
@@ -385,12 +394,12 @@ public class OGLGUILabel extends OGLGUIObject
 	private void refreshMesh()
 	{
 		refreshTextData(getText());
-		textMesh = constructMesh();
-		textMeshView = textMesh != null ? textMesh.getView() : null;
+		updateMesh();
 	}
 
 	/**
-	 * Creates and returns a new mesh for the new text.
+	 * Breaks up the text into lines of characters for the mesh.
+	 * The layout buffers are reused between calls, and only grow.
 	 * @param text the text data.
 	 */
 	private void refreshTextData(String text)
@@ -403,15 +412,17 @@ public class OGLGUILabel extends OGLGUIObject
 		float width = resizeMode != null ? maxWidth : getRenderHalfWidth()*2;
 		float height = resizeMode != null ? Float.MAX_VALUE : getRenderHalfHeight()*2;
 
-		textData = new MeshContext();
+		if (textData == null)
+			textData = new MeshContext();
+		textData.reset(font);
 		if (text == null || text.length() == 0 || font.getSize() <= 0f || width == 0 || height == 0)
 			return;
 		
 		float size = font.getSize();
-		char[] chars = text.toCharArray();
-		for (int i = 0; i < chars.length; i++)
+		int length = text.length();
+		for (int i = 0; i < length; i++)
 		{
-			char c = chars[i];
+			char c = text.charAt(i);
 			FontChar fc = font.getChar(c);
 			// newlines
 			if (fc == null)
@@ -429,13 +440,13 @@ public class OGLGUILabel extends OGLGUIObject
 				FontChar spacefc = font.getChar(' ');
 				float spwidth = (spacefc.width * size);
 				textData.addWordToLine();
-				if (textData.lineBuffer.lineWidth + spwidth < width)
-					textData.lineBuffer.addChar(spacefc);
+				if (textData.lineWidth + spwidth < width)
+					textData.addCharToLine(spacefc);
 			}
 			// character will breach the line.
-			else if (textData.lineBuffer.lineWidth + textData.wordWidth + (fc.advance * size) >= width)
+			else if (textData.getWidthWith(fc) >= width)
 			{
-				if (textData.lineBuffer.words == 0)
+				if (textData.lineWords == 0)
 					textData.addWordToLine();
 				textData.nextLine();
 				textData.addChar(fc);
@@ -466,15 +477,48 @@ public class OGLGUILabel extends OGLGUIObject
 		return false;
 	}
 	
-	// Creates the mesh itself.
-	private PolygonMesh constructMesh()
+	/**
+	 * Returns the font's kerning type, or null if the font has no kerning.
+	 */
+	private static OGLGUIKernedFontType getKerningFont(OGLGUIFontType font)
 	{
+		return font instanceof OGLGUIKernedFontType ? (OGLGUIKernedFontType)font : null;
+	}
+	
+	/**
+	 * Returns the kerning between two font characters, or 0 if the first is null or there is no kerning font.
+	 */
+	private static float getKerning(OGLGUIKernedFontType kerning, FontChar first, FontChar second)
+	{
+		return kerning != null && first != null ? kerning.getKerning(first.c, second.c) : 0f;
+	}
+	
+	/**
+	 * Updates the mesh for the current text data.
+	 * The mesh is reused if it has room for the text's characters, and only the 
+	 * quads whose texture coordinates or position changed are rewritten (the values are 
+	 * compared, not the characters, since fonts can change characters in place). 
+	 * Leftover quads are collapsed to a point. A bigger mesh is only created if the text doesn't fit.
+	 */
+	private void updateMesh()
+	{
+		if (textMesh == null)
+		{
+			textMesh = NO_POLYS;
+			textMeshView = NO_POLYS.getView();
+			meshCapacity = 0;
+			meshQuads = 0;
+		}
+		
 		OGLGUIFontType font = getFont();
 		
-		if (font == null || textData.quads == 0)
-			return NO_POLYS;
+		if (font == null || textData == null || textData.quads == 0)
+		{
+			clearQuads(0);
+			return;
+		}
 		
-		int maxLines = textData.textBlock.size();
+		int maxLines = textData.lineCount;
 		int visibleLines = maxLines - Math.max(startingLine, 0);
 		float size = font.getSize();
 		float width = resizeMode != null ? maxWidth : getRenderHalfWidth()*2;
@@ -483,7 +527,16 @@ public class OGLGUILabel extends OGLGUIObject
 		float heightBasis = size / height * 2;
 		float widthBasis = size / width * 2;
 
-		PolygonMesh out = new PolygonMesh(GeometryType.QUADS, textData.quads*4, 1);
+		if (textData.quads > meshCapacity)
+		{
+			int capacity = Math.max(textData.quads, meshCapacity + (meshCapacity >> 1));
+			textMesh = new PolygonMesh(GeometryType.QUADS, capacity*4, 1);
+			textMeshView = textMesh.getView();
+			meshCapacity = capacity;
+			meshQuads = 0;
+			meshCorners = new float[capacity*4];
+			meshTexCoords = new float[capacity*4];
+		}
 		
 		int i = 0;
 		float y = 1f;
@@ -493,10 +546,12 @@ public class OGLGUILabel extends OGLGUIObject
 			y = 1f - ((2f - (visibleLines < totalLines ? visibleLines * heightBasis : totalLines * heightBasis))/2);
 		
 		Directionality dir = font.getDirectionality();
+		OGLGUIKernedFontType kerning = getKerningFont(font);
 		int linenum = 0;
 		int linesRendered = 0;
-		for (MeshContext.Line line : textData.textBlock)
+		for (int l = 0; l < textData.lineCount; l++)
 		{
+			float lineWidth = textData.lineWidths[l];
 			if (linesRendered >= totalLines)
 				break;
 
@@ -519,49 +574,46 @@ public class OGLGUILabel extends OGLGUIObject
 				just = justification;
 			
 			if (just == Justification.CENTER)
-				x = -(line.lineWidth / width);
+				x = -(lineWidth / width);
 			else if (just == Justification.RIGHT)
-				x = (-(line.lineWidth / width)) * 2 + 1;
+				x = (-(lineWidth / width)) * 2 + 1;
 			else // LEFT
 				x = -1f;
 
 			if (dir == Directionality.RIGHT_TO_LEFT)
-				x += (line.lineWidth / width) * 2;
+				x += (lineWidth / width) * 2;
 			
-			for (FontChar fc : line.line)
+			FontChar prev = null;
+			for (int g = textData.lineStarts[l]; g < textData.lineEnds[l]; g++)
 			{
+				FontChar fc = textData.glyphs[g];
+				float kern = getKerning(kerning, prev, fc) * widthBasis;
 				if (dir == Directionality.RIGHT_TO_LEFT)
-					x -= fc.advance * widthBasis;
+					x -= fc.advance * widthBasis + kern;
+				else
+					x += kern;
 				
 				float wx = fc.width * widthBasis;
 				float hy = fc.height * heightBasis;
 				float xofs = fc.xofs * widthBasis;
 				float yofs = fc.yofs * heightBasis;
 				
-				int idx = (i*4);
-
 				float x0 = x+xofs;
 				float x1 = x+wx+xofs;
 				float y0 = yofs - (y - hy);
 				float y1 = yofs - y;
 				
-				out.setVertex(idx+0, x0, y0, 0);
-				out.setVertex(idx+1, x0, y1, 0);
-				out.setVertex(idx+2, x1, y1, 0);
-				out.setVertex(idx+3, x1, y0, 0);
-				
-				out.setTextureCoordinate(idx+0, fc.s0, fc.t1);
-				out.setTextureCoordinate(idx+1, fc.s0, fc.t0);
-				out.setTextureCoordinate(idx+2, fc.s1, fc.t0);
-				out.setTextureCoordinate(idx+3, fc.s1, fc.t1);
+				setQuad(i, fc, x0, y0, x1, y1);
 				
 				if (dir == Directionality.LEFT_TO_RIGHT)
 					x += fc.advance * widthBasis;
+				prev = fc;
 				i++;
 			}
 			y -= heightBasis;
 			linesRendered++;
 		}
+		clearQuads(i);
 		
 		Rectangle2F objectBounds = getNativeBounds();
 		
@@ -571,7 +623,7 @@ public class OGLGUILabel extends OGLGUIObject
 			case PIN_Y:
 				objectBounds.height = height;
 				if (linesRendered <= 1)
-					objectBounds.width = textData.textBlock.head().lineWidth;
+					objectBounds.width = textData.lineWidths[0];
 				else
 					objectBounds.width = maxWidth;
 				break;
@@ -580,85 +632,225 @@ public class OGLGUILabel extends OGLGUIObject
 				objectBounds.height = height;
 				objectBounds.y += old_height - objectBounds.height;
 				if (linesRendered <= 1)
-					objectBounds.width = textData.textBlock.head().lineWidth;
+					objectBounds.width = textData.lineWidths[0];
 				else
 					objectBounds.width = maxWidth;
 				break;
 		}
+	}
+
+	// Writes a character quad to the mesh, if its corners or texture coordinates changed.
+	// The corner and texture coordinate arrays always mirror what is in the mesh.
+	private void setQuad(int quad, FontChar fc, float x0, float y0, float x1, float y1)
+	{
+		int idx = quad*4;
+		if (meshCorners[idx] != x0 || meshCorners[idx+1] != y0 
+				|| meshCorners[idx+2] != x1 || meshCorners[idx+3] != y1)
+		{
+			textMesh.setVertex(idx+0, x0, y0, 0);
+			textMesh.setVertex(idx+1, x0, y1, 0);
+			textMesh.setVertex(idx+2, x1, y1, 0);
+			textMesh.setVertex(idx+3, x1, y0, 0);
+			meshCorners[idx] = x0;
+			meshCorners[idx+1] = y0;
+			meshCorners[idx+2] = x1;
+			meshCorners[idx+3] = y1;
+		}
 
-		return out;
+		if (meshTexCoords[idx] != fc.s0 || meshTexCoords[idx+1] != fc.t0 
+				|| meshTexCoords[idx+2] != fc.s1 || meshTexCoords[idx+3] != fc.t1)
+		{
+			textMesh.setTextureCoordinate(idx+0, fc.s0, fc.t1);
+			textMesh.setTextureCoordinate(idx+1, fc.s0, fc.t0);
+			textMesh.setTextureCoordinate(idx+2, fc.s1, fc.t0);
+			textMesh.setTextureCoordinate(idx+3, fc.s1, fc.t1);
+			meshTexCoords[idx] = fc.s0;
+			meshTexCoords[idx+1] = fc.t0;
+			meshTexCoords[idx+2] = fc.s1;
+			meshTexCoords[idx+3] = fc.t1;
+		}
+	}
+
+	// Collapses the quads in use from a quad onward to a point, and marks them unused.
+	private void clearQuads(int start)
+	{
+		for (int quad = start; quad < meshQuads; quad++)
+		{
+			int idx = quad*4;
+			textMesh.setVertex(idx+0, 0, 0, 0);
+			textMesh.setVertex(idx+1, 0, 0, 0);
+			textMesh.setVertex(idx+2, 0, 0, 0);
+			textMesh.setVertex(idx+3, 0, 0, 0);
+			meshCorners[idx] = 0f;
+			meshCorners[idx+1] = 0f;
+			meshCorners[idx+2] = 0f;
+			meshCorners[idx+3] = 0f;
+		}
+		meshQuads = start;
 	}
 	
 	/**
 	 * Mesh context for creating a mesh.
+	 * Characters are kept in one array: finished lines are ranges in it, and 
+	 * the line being built is followed by the word being built at the end of it.
 	 */
-	private class MeshContext
+	private static class MeshContext
 	{
-		public Queue<Line> textBlock;
-		public Line lineBuffer;
-		public Queue<FontChar> wordBuffer;
-		public float wordWidth;
-		public int quads;
+		/** Characters of all lines, and the current line and word. */
+		FontChar[] glyphs;
+		/** Amount of characters used in the character array. */
+		int glyphCount;
+		
+		/** Finished line start offsets into the character array. */
+		int[] lineStarts;
+		/** Finished line end offsets into the character array (exclusive). */
+		int[] lineEnds;
+		/** Finished line widths. */
+		float[] lineWidths;
+		/** Amount of finished lines. */
+		int lineCount;
+		/** Amount of characters on all finished lines. */
+		int quads;
+		
+		/** Current line start offset. */
+		int lineStart;
+		/** Current line end offset, and current word start offset. */
+		int lineEnd;
+		/** Current line width. */
+		float lineWidth;
+		/** Amount of words on the current line. */
+		int lineWords;
+		/** Current word width. */
+		float wordWidth;
+
+		/** The font used for the current text, if it has kerning. */
+		OGLGUIKernedFontType kerning;
+		/** The font size used for the current text. */
+		float size;
 		
 		MeshContext()
 		{
-			textBlock = new Queue<Line>();
-			lineBuffer = new Line();
-			wordBuffer = new Queue<FontChar>();
-			wordWidth = 0f;
-			quads = 0;
+			glyphs = new FontChar[64];
+			lineStarts = new int[8];
+			lineEnds = new int[8];
+			lineWidths = new float[8];
 		}
-		public void nextLine()
+		
+		/**
+		 * Clears this context for new text, keeping its buffers.
+		 */
+		void reset(OGLGUIFontType font)
 		{
-			lineBuffer.trim();
-			quads += lineBuffer.line.size();
-			textBlock.add(lineBuffer);
-			lineBuffer = new Line();
+			Arrays.fill(glyphs, 0, glyphCount, null);
+			glyphCount = 0;
+			lineCount = 0;
+			quads = 0;
+			lineStart = 0;
+			lineEnd = 0;
+			lineWidth = 0f;
+			lineWords = 0;
+			wordWidth = 0f;
+			this.kerning = getKerningFont(font);
+			this.size = font.getSize();
 		}
-		public void addWordToLine()
+		
+		/**
+		 * Returns the last character of the current word, or null if the word is empty.
+		 */
+		FontChar getWordTail()
 		{
-			for (FontChar fc : wordBuffer)
-				lineBuffer.addChar(fc);
-			lineBuffer.words++;
-			wordBuffer = new Queue<FontChar>();
-			wordWidth = 0;
+			return glyphCount > lineEnd ? glyphs[glyphCount - 1] : null;
 		}
-		public void addChar(FontChar fc)
+		
+		/**
+		 * Returns the width that the current line would have if the current word 
+		 * and then a character were added to it, including kerning between them.
+		 */
+		float getWidthWith(FontChar fc)
 		{
-			OGLGUIFontType font = getFont();
-			wordBuffer.add(fc);
-			wordWidth += (fc.advance * font.getSize());
+			FontChar lineTail = lineEnd > lineStart ? glyphs[lineEnd - 1] : null;
+			FontChar wordHead = glyphCount > lineEnd ? glyphs[lineEnd] : fc;
+			return lineWidth + wordWidth + 
+				(getKerning(kerning, lineTail, wordHead) + fc.advance + getKerning(kerning, getWordTail(), fc)) * size;
 		}
 		
-		protected class Line
+		/**
+		 * Trims the current line and finishes it.
+		 */
+		void nextLine()
 		{
-			public Queue<FontChar> line;
-			public float lineWidth;
-			public int words;
-			
-			public Line()
+			int start = lineStart;
+			int end = lineEnd;
+			while (end > start && Character.isWhitespace(glyphs[end - 1].c))
+			{
+				FontChar fc = glyphs[--end];
+				lineWidth -= (fc.advance + getKerning(kerning, end > start ? glyphs[end - 1] : null, fc)) * size;
+			}
+			while (end > start && Character.isWhitespace(glyphs[start].c))
 			{
-				line = new Queue<FontChar>();
-				lineWidth = 0;
-				words = 0;
+				FontChar fc = glyphs[start++];
+				lineWidth -= (fc.advance + (end > start ? getKerning(kerning, fc, glyphs[start]) : 0f)) * size;
 			}
-			public void addChar(FontChar fc)
+			
+			if (lineCount == lineStarts.length)
 			{
-				OGLGUIFontType font = getFont();
-				line.add(fc);
-				lineWidth += (fc.advance * font.getSize());
+				int capacity = lineCount * 2;
+				lineStarts = Arrays.copyOf(lineStarts, capacity);
+				lineEnds = Arrays.copyOf(lineEnds, capacity);
+				lineWidths = Arrays.copyOf(lineWidths, capacity);
 			}
-			public void trim()
+			lineStarts[lineCount] = start;
+			lineEnds[lineCount] = end;
+			lineWidths[lineCount] = lineWidth;
+			lineCount++;
+			quads += end - start;
+			
+			lineStart = lineEnd;
+			lineWidth = 0f;
+			lineWords = 0;
+		}
+		
+		/**
+		 * Adds the current word to the end of the current line.
+		 */
+		void addWordToLine()
+		{
+			for (; lineEnd < glyphCount; lineEnd++)
 			{
-				OGLGUIFontType font = getFont();
-				float size = font.getSize();
-				while (!line.isEmpty() && Character.isWhitespace(line.tail().c))
-					lineWidth -= line.removeIndex(line.size()-1).advance * size;
-				while (!line.isEmpty() && Character.isWhitespace(line.head().c))
-					lineWidth -= line.dequeue().advance * size;
+				FontChar fc = glyphs[lineEnd];
+				lineWidth += (fc.advance + getKerning(kerning, lineEnd > lineStart ? glyphs[lineEnd - 1] : null, fc)) * size;
 			}
+			lineWords++;
+			wordWidth = 0f;
+		}
+		
+		/**
+		 * Adds a character to the current word.
+		 */
+		void addChar(FontChar fc)
+		{
+			wordWidth += (fc.advance + getKerning(kerning, getWordTail(), fc)) * size;
+			append(fc);
 		}
+		
+		/**
+		 * Adds a character to the current line. The current word must be empty.
+		 */
+		void addCharToLine(FontChar fc)
+		{
+			lineWidth += (fc.advance + getKerning(kerning, lineEnd > lineStart ? glyphs[lineEnd - 1] : null, fc)) * size;
+			append(fc);
+			lineEnd++;
+		}
+		
+		// Adds a character to the end of the character array.
+		private void append(FontChar fc)
+		{
+			if (glyphCount == glyphs.length)
+				glyphs = Arrays.copyOf(glyphs, glyphCount * 2);
+			glyphs[glyphCount++] = fc;
+		}
+		
 	}
 	
-	
 }
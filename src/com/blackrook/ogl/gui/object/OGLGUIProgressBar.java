@@ -283,7 +283,7 @@ public class OGLGUIProgressBar<T extends Object> extends OGLGUIGlassPanel implem
 		if (!v.equals(currentValue))
 		{
 			currentValue = v;
-			fireEvent(EVENT_VALUE_CHANGE);
+			fireEvent(EVENT_ID_VALUE_CHANGE);
 			if (transitionType != null && transitionTime > 0f)
 				performTransition();
 			else
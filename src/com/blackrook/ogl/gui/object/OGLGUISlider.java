@@ -378,7 +378,7 @@ public class OGLGUISlider<T extends Object> extends OGLGUIGlassPanel implements
 		if (!v.equals(currentValue))
 		{
 			currentValue = v;
-			fireEvent(EVENT_VALUE_CHANGE);
+			fireEvent(EVENT_ID_VALUE_CHANGE);
 			resizeChildren();
 		}
 	}
@@ -471,7 +471,7 @@ public class OGLGUISlider<T extends Object> extends OGLGUIGlassPanel implements
 		if (!value.equals(currentValue))
 		{
 			currentValue = value;
-			fireEvent(EVENT_VALUE_CHANGE);
+			fireEvent(EVENT_ID_VALUE_CHANGE);
 		}
 	}
 
@@ -88,7 +88,7 @@ public abstract class OGLGUITogglePanel extends OGLGUIObject implements OGLGUITo
 		if (this.state != state)
 		{
 			this.state = state;
-			fireEvent(EVENT_VALUE_CHANGE);
+			fireEvent(EVENT_ID_VALUE_CHANGE);
 		}
 	}
 	
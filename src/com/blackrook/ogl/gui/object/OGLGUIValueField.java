@@ -7,6 +7,8 @@
  ******************************************************************************/
 package com.blackrook.ogl.gui.object;
 
+import com.blackrook.ogl.gui.OGLGUIObject;
+
 /**
  * Interface for fields that contain a value of some kind.
  * Contains methods for getting and setting that value.
@@ -18,6 +20,8 @@ public interface OGLGUIValueField<T extends Object>
 {
 	/** Event type for a value/slider changing. */
 	public static final String EVENT_VALUE_CHANGE = "VALUE_CHANGE";
+	/** Event type id for {@link #EVENT_VALUE_CHANGE}. */
+	public static final int EVENT_ID_VALUE_CHANGE = OGLGUIObject.getEventTypeId(EVENT_VALUE_CHANGE);
 
 	/** Returns this field's current value. */
 	public T getValue();
@@ -34,6 +34,7 @@ public final class OGLGUIObjectFactory
 			obj.setColor(generator.nextColor(i));
 			String[] names = generator.nextNames(i);
 			if (names != null) obj.addName(names);
+			outList.add(obj);
 		}
 		
 		OGLGUIPanel[] out = new OGLGUIPanel[outList.size()];
@@ -0,0 +1,429 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.ogl.gui.util;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.ogl.data.OGLColor;
+import com.blackrook.ogl.gui.OGLGUI;
+import com.blackrook.ogl.gui.OGLGUIAnimation;
+import com.blackrook.ogl.gui.OGLGUIObject;
+import com.blackrook.ogl.gui.layout.FlowLayout;
+import com.blackrook.ogl.gui.layout.GridLayout;
+import com.blackrook.ogl.gui.model.range.FloatRangeModel;
+import com.blackrook.ogl.gui.object.OGLGUIFrame;
+import com.blackrook.ogl.gui.object.OGLGUILabel;
+import com.blackrook.ogl.gui.object.OGLGUIPanel;
+import com.blackrook.ogl.gui.object.OGLGUISlider;
+
+/**
+ * Generates large, randomized (but repeatable) trees of GUI objects,
+ * for stress testing and benchmarking.
+ * <p>Trees are a root panel with a set amount of children, each of which is a panel,
+ * label, slider, or frame, picked by weight. Panels and frames get the same amount
+ * of children until the set depth is reached. Every object gets a random color and bounds
+ * inside of its parent, the names "node", its type ("panel", "label", "slider", or "frame"),
+ * "depth&lt;n&gt;", and one name picked from "name0" to "name&lt;nameCount - 1&gt;".
+ * Panels may get a flow or grid layout, and objects may get an animation.
+ * <p>The root's subtrees are built in parallel, each from its own random sequence
+ * derived from the seed, so the same settings and seed always make the same tree,
+ * no matter how many threads are used. The finished tree is then attached to a GUI
+ * in one update (see {@link OGLGUI#beginUpdate()}).
+ * @author Matthew Tropiano
+ */
+public final class OGLGUITreeGenerator
+{
+	/** Default depth. */
+	public static final int DEFAULT_DEPTH = 4;
+	/** Default breadth. */
+	public static final int DEFAULT_BREADTH = 8;
+	/** Default amount of distinct names. */
+	public static final int DEFAULT_NAME_COUNT = 16;
+
+	/** Random seed. */
+	private long seed;
+	/** Tree depth below the root. */
+	private int depth;
+	/** Children per panel or frame. */
+	private int breadth;
+	/** Root width. */
+	private float width;
+	/** Root height. */
+	private float height;
+	/** Panel weight. */
+	private float panelWeight;
+	/** Label weight. */
+	private float labelWeight;
+	/** Slider weight. */
+	private float sliderWeight;
+	/** Frame weight. */
+	private float frameWeight;
+	/** Chance that a panel with children gets a layout. */
+	private float layoutChance;
+	/** Chance that an object gets an animation. */
+	private float animationChance;
+	/** Amount of distinct names. */
+	private int nameCount;
+	/** Amount of construction threads. */
+	private int threadCount;
+	/** Amount of objects made by the last generate call. */
+	private long generatedCount;
+
+	/**
+	 * Creates a new tree generator with {@link #DEFAULT_DEPTH}, {@link #DEFAULT_BREADTH},
+	 * equal weights for each object type, a layout chance of 0.5, no animations,
+	 * a 1024 by 1024 root, and one construction thread per available processor.
+	 * @param seed the random seed.
+	 */
+	public OGLGUITreeGenerator(long seed)
+	{
+		this.seed = seed;
+		this.depth = DEFAULT_DEPTH;
+		this.breadth = DEFAULT_BREADTH;
+		this.width = 1024f;
+		this.height = 1024f;
+		this.panelWeight = 1f;
+		this.labelWeight = 1f;
+		this.sliderWeight = 1f;
+		this.frameWeight = 1f;
+		this.layoutChance = 0.5f;
+		this.animationChance = 0f;
+		this.nameCount = DEFAULT_NAME_COUNT;
+		this.threadCount = Runtime.getRuntime().availableProcessors();
+		this.generatedCount = 0L;
+	}
+
+	/**
+	 * Sets the random seed.
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the tree shape. At most <code>breadth<sup>depth</sup></code> objects
+	 * are generated below the root, if only panels and frames are made.
+	 * @param depth the amount of levels below the root.
+	 * @param breadth the amount of children per panel or frame.
+	 * @throws IllegalArgumentException if depth or breadth is less than 1.
+	 */
+	public void setShape(int depth, int breadth)
+	{
+		if (depth < 1 || breadth < 1)
+			throw new IllegalArgumentException("Depth and breadth must be at least 1.");
+		this.depth = depth;
+		this.breadth = breadth;
+	}
+
+	/**
+	 * Sets the root panel's dimensions.
+	 * @throws IllegalArgumentException if width or height is not positive.
+	 */
+	public void setRootDimensions(float width, float height)
+	{
+		if (width <= 0f || height <= 0f)
+			throw new IllegalArgumentException("Root dimensions must be positive.");
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Sets the relative weights for picking each type of object.
+	 * Labels and sliders never have children, so heavier label and slider
+	 * weights make smaller trees.
+	 * @throws IllegalArgumentException if any weight is negative or all are zero.
+	 */
+	public void setWeights(float panel, float label, float slider, float frame)
+	{
+		if (panel < 0f || label < 0f || slider < 0f || frame < 0f)
+			throw new IllegalArgumentException("Weights cannot be negative.");
+		if (panel + label + slider + frame <= 0f)
+			throw new IllegalArgumentException("At least one weight must be positive.");
+		this.panelWeight = panel;
+		this.labelWeight = label;
+		this.sliderWeight = slider;
+		this.frameWeight = frame;
+	}
+
+	/**
+	 * Sets the chance (0 to 1) that a panel with children gets a flow or grid layout.
+	 */
+	public void setLayoutChance(float layoutChance)
+	{
+		this.layoutChance = layoutChance;
+	}
+
+	/**
+	 * Sets the chance (0 to 1) that an object gets an animation when the tree is attached to a GUI.
+	 */
+	public void setAnimationChance(float animationChance)
+	{
+		this.animationChance = animationChance;
+	}
+
+	/**
+	 * Sets the amount of distinct "name&lt;n&gt;" names.
+	 * @throws IllegalArgumentException if nameCount is less than 1.
+	 */
+	public void setNameCount(int nameCount)
+	{
+		if (nameCount < 1)
+			throw new IllegalArgumentException("Name count must be at least 1.");
+		this.nameCount = nameCount;
+	}
+
+	/**
+	 * Sets the amount of threads used to build the root's subtrees.
+	 * @throws IllegalArgumentException if threadCount is less than 1.
+	 */
+	public void setThreadCount(int threadCount)
+	{
+		if (threadCount < 1)
+			throw new IllegalArgumentException("Thread count must be at least 1.");
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Returns the amount of objects made by the last call to a generate method,
+	 * including the root, but not including internal objects of sliders.
+	 */
+	public long getGeneratedCount()
+	{
+		return generatedCount;
+	}
+
+	/**
+	 * Generates a tree that is not attached to a GUI.
+	 * No animations are added, since objects can only animate while in a GUI.
+	 * @return the root panel.
+	 */
+	public OGLGUIPanel generate()
+	{
+		return generate(null);
+	}
+
+	/**
+	 * Generates a tree and attaches it to a GUI in one update, then starts its animations.
+	 * @param gui the GUI to attach the tree to. If null, the tree is not attached and not animated.
+	 * @return the root panel.
+	 */
+	public OGLGUIPanel generate(OGLGUI gui)
+	{
+		OGLGUIPanel root = new OGLGUIPanel(0, 0, width, height);
+		root.addName("node", "root");
+
+		Subtree[] subtrees = buildSubtrees();
+		OGLGUIObject[] children = new OGLGUIObject[subtrees.length];
+		long count = 1L;
+		for (int i = 0; i < subtrees.length; i++)
+		{
+			children[i] = subtrees[i].object;
+			count += subtrees[i].count;
+		}
+		root.addChildren(children);
+		generatedCount = count;
+
+		if (gui != null)
+		{
+			gui.beginUpdate();
+			try {
+				gui.addObject(root);
+			} finally {
+				gui.endUpdate();
+			}
+			for (Subtree subtree : subtrees)
+				for (Animated animated : subtree.animated)
+					animated.object.animate(animated.duration, animated.animations);
+		}
+
+		return root;
+	}
+
+	// Builds each of the root's subtrees, in parallel.
+	private Subtree[] buildSubtrees()
+	{
+		Subtree[] out = new Subtree[breadth];
+		int threads = Math.min(threadCount, breadth);
+		if (threads == 1)
+		{
+			for (int i = 0; i < breadth; i++)
+				out[i] = new Builder(i).call();
+			return out;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Subtree>> futures = new List<Future<Subtree>>(breadth);
+			for (int i = 0; i < breadth; i++)
+				futures.add(executor.submit(new Builder(i)));
+			for (int i = 0; i < breadth; i++)
+				out[i] = futures.getByIndex(i).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while generating tree.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if (cause instanceof Error)
+				throw (Error)cause;
+			throw new RuntimeException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+		return out;
+	}
+
+	/** A built subtree of the root. */
+	private static class Subtree
+	{
+		/** The subtree's top object. */
+		OGLGUIObject object;
+		/** Amount of objects in the subtree. */
+		long count;
+		/** Animations to start once attached. */
+		List<Animated> animated;
+	}
+
+	/** An animation to start once attached. */
+	private static class Animated
+	{
+		OGLGUIObject object;
+		float duration;
+		OGLGUIAnimation[] animations;
+
+		Animated(OGLGUIObject object, float duration, OGLGUIAnimation ... animations)
+		{
+			this.object = object;
+			this.duration = duration;
+			this.animations = animations;
+		}
+	}
+
+	/** Builds one of the root's subtrees from its own random sequence. */
+	private class Builder implements Callable<Subtree>
+	{
+		private Random random;
+		private Subtree subtree;
+		private OGLGUIObject[][] childBuffers;
+		private int index;
+
+		Builder(int index)
+		{
+			this.index = index;
+			this.random = new Random(seed + index * 0x9E3779B97F4A7C15L);
+			this.subtree = new Subtree();
+			this.subtree.animated = new List<Animated>();
+			this.childBuffers = new OGLGUIObject[depth + 1][];
+		}
+
+		@Override
+		public Subtree call()
+		{
+			subtree.object = build(1, width, height);
+			return subtree;
+		}
+
+		// Builds an object (and its children) that fits in a parent of the provided dimensions.
+		private OGLGUIObject build(int level, float parentWidth, float parentHeight)
+		{
+			float w = parentWidth * (0.25f + random.nextFloat() * 0.5f);
+			float h = parentHeight * (0.25f + random.nextFloat() * 0.5f);
+			float x = random.nextFloat() * (parentWidth - w);
+			float y = random.nextFloat() * (parentHeight - h);
+
+			OGLGUIObject out;
+			String type;
+			boolean container = false;
+			boolean panel = false;
+			float pick = random.nextFloat() * (panelWeight + labelWeight + sliderWeight + frameWeight);
+			if ((pick -= panelWeight) < 0f)
+			{
+				out = new OGLGUIPanel(x, y, w, h);
+				type = "panel";
+				container = true;
+				panel = true;
+			}
+			else if ((pick -= labelWeight) < 0f)
+			{
+				out = new OGLGUILabel("Label " + index + "." + subtree.count);
+				out.setBounds(x, y, w, h);
+				type = "label";
+			}
+			else if ((pick -= sliderWeight) < 0f)
+			{
+				out = new OGLGUISlider<Float>(new FloatRangeModel(0f, 1f),
+					random.nextBoolean() ? OGLGUISlider.Style.HORIZONTAL : OGLGUISlider.Style.VERTICAL);
+				out.setBounds(x, y, w, h);
+				type = "slider";
+			}
+			else
+			{
+				out = new OGLGUIFrame(x, y, w, h, Math.max(1f, Math.min(w, h) * 0.05f));
+				type = "frame";
+				container = true;
+			}
+
+			subtree.count++;
+			out.setColor(new OGLColor(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1f));
+			out.addName("node", type, "depth" + level, "name" + random.nextInt(nameCount));
+
+			if (random.nextFloat() < animationChance)
+				subtree.animated.add(new Animated(out, 250f + random.nextFloat() * 750f, nextAnimation(w, h)));
+
+			if (container && level < depth)
+			{
+				// reuse one array per level - addChildren copies the references.
+				OGLGUIObject[] children = childBuffers[level];
+				if (children == null)
+					children = childBuffers[level] = new OGLGUIObject[breadth];
+				for (int i = 0; i < breadth; i++)
+					children[i] = build(level + 1, w, h);
+				out.addChildren(children);
+
+				if (panel && random.nextFloat() < layoutChance)
+				{
+					if (random.nextBoolean())
+						out.setLayout(new FlowLayout());
+					else
+					{
+						int columns = (int)Math.ceil(Math.sqrt(breadth));
+						out.setLayout(new GridLayout((breadth + columns - 1) / columns, columns));
+					}
+				}
+			}
+
+			return out;
+		}
+
+		// Picks a random animation.
+		private OGLGUIAnimation nextAnimation(float w, float h)
+		{
+			switch (random.nextInt(4))
+			{
+				default:
+				case 0:
+					return OGLGUIAnimation.opacity(random.nextFloat());
+				case 1:
+					return OGLGUIAnimation.color(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1f);
+				case 2:
+					return OGLGUIAnimation.rotation(random.nextFloat() * 360f);
+				case 3:
+					return OGLGUIAnimation.dimension(w * (0.5f + random.nextFloat()), h * (0.5f + random.nextFloat()));
+			}
+		}
+	}
+
+}